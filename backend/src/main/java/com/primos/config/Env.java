@@ -0,0 +1,38 @@
+package com.primos.config;
+
+/**
+ * Numeric tuning knobs read from environment variables. A missing, blank,
+ * unparseable, zero or negative value falls back to the default, since every
+ * knob is a size, rate or duration.
+ */
+public final class Env {
+
+    private Env() {
+    }
+
+    public static int positiveInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static double positiveDouble(String name, double defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.primos.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request while the target host's
+ * {@link CircuitBreaker} is open.
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String host) {
+        super("Circuit open for " + host);
+    }
+}
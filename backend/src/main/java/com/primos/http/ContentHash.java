@@ -0,0 +1,25 @@
+package com.primos.http;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Short content hashes used as strong validators for pre-serialized
+ * responses: the first 128 bits of the SHA-256 digest, hex encoded.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static String of(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(Arrays.hashCode(content));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.primos.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.primos.config.Env;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Single entry point for every outbound HTTP call made by the backend.
+ * <p>
+ * One {@link HttpClient} is kept per {@link Upstream} so connections (and TLS
+ * sessions) are pooled and reused per host, while all clients share one
+ * executor. Concurrency is capped both per upstream and globally so a slow
+ * upstream cannot exhaust the worker threads under load, and each upstream is
+ * paced by a {@link TokenBucket} so bursts stay within provider rate limits.
+ * <p>
+ * Every host also has a {@link CircuitBreaker}, so calls to an upstream that
+ * keeps failing fail fast instead of tying up threads. {@link #sendAsync}
+ * retries according to a {@link RetryPolicy} without blocking: waits for rate
+ * limits, free slots and backoff are scheduled on a timer rather than slept.
+ */
+@ApplicationScoped
+public class OutboundHttpClient {
+    private static final Logger LOG = Logger.getLogger(OutboundHttpClient.class.getName());
+    private static final int THREADS = Env.positiveInt("OUTBOUND_HTTP_THREADS", 8);
+    private static final int MAX_CONCURRENCY = Env.positiveInt("OUTBOUND_HTTP_MAX_CONCURRENCY", 64);
+    private static final int BREAKER_FAILURES = Env.positiveInt("OUTBOUND_HTTP_BREAKER_FAILURES", 5);
+    private static final int BREAKER_OPEN_SECONDS = Env.positiveInt("OUTBOUND_HTTP_BREAKER_OPEN_SECONDS", 30);
+    private static final long PERMIT_POLL_MS = 10;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, daemonThreads("outbound-http-"));
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            daemonThreads("outbound-http-timer-"));
+    private final Semaphore globalPermits = new Semaphore(MAX_CONCURRENCY, true);
+    private final Map<Upstream, HttpClient> clients = new EnumMap<>(Upstream.class);
+    private final Map<Upstream, Semaphore> permits = new EnumMap<>(Upstream.class);
+    private final Map<Upstream, TokenBucket> rateLimits = new EnumMap<>(Upstream.class);
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public OutboundHttpClient() {
+        ProxySelector proxy = proxyFromEnv();
+        for (Upstream upstream : Upstream.values()) {
+            clients.put(upstream, buildClient(upstream, proxy));
+            permits.put(upstream, new Semaphore(upstream.getMaxConcurrent(), true));
+            double rps = Env.positiveDouble("OUTBOUND_HTTP_" + upstream.name() + "_RPS",
+                    upstream.getRequestsPerSecond());
+            rateLimits.put(upstream, new TokenBucket(rps, upstream.getBurst()));
+        }
+    }
+
+    /**
+     * Starts a GET request to the given URL with the upstream's read timeout
+     * applied. Callers may add headers or switch the method before building.
+     */
+    public HttpRequest.Builder request(Upstream upstream, String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(upstream.getRequestTimeout())
+                .GET();
+    }
+
+    /**
+     * Sends a request through the pooled client of the given upstream. The
+     * caller never sleeps for the rate limit: without a free permit the call
+     * fails at once, and callers that would rather wait use
+     * {@link #sendAsync}, which schedules the wait instead. Request handlers
+     * use {@link #sendAsync} so a burst on a shared upstream delays a user's
+     * call instead of rejecting it.
+     *
+     * @throws CircuitOpenException       if the host's circuit is open
+     * @throws RateLimitExceededException if the upstream's rate limit has no
+     *                                    permit free right now
+     */
+    public <T> HttpResponse<T> send(Upstream upstream, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        CircuitBreaker breaker = breaker(request);
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException(request.uri().getHost());
+        }
+        if (!rateLimits.get(upstream).tryAcquire()) {
+            throw new RateLimitExceededException(upstream);
+        }
+        Semaphore hostPermits = permits.get(upstream);
+        globalPermits.acquire();
+        try {
+            hostPermits.acquire();
+            try {
+                HttpResponse<T> response = clients.get(upstream).send(request, handler);
+                record(breaker, response.statusCode());
+                return response;
+            } catch (IOException e) {
+                breaker.onFailure();
+                throw e;
+            } finally {
+                hostPermits.release();
+            }
+        } finally {
+            globalPermits.release();
+        }
+    }
+
+    /**
+     * Sends a request without blocking the caller, retrying failures and
+     * retryable statuses according to {@code policy}. Rate-limit waits,
+     * concurrency slots and backoff delays are all scheduled, so no thread
+     * sleeps on behalf of the request.
+     *
+     * @return the final response, which may still carry an error status once
+     *         retries are exhausted; completes exceptionally with the last
+     *         error (e.g. {@link CircuitOpenException}) if no response came back.
+     *         Cancelling it stops any retries that have not started yet.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(Upstream upstream, HttpRequest request,
+            HttpResponse.BodyHandler<T> handler, RetryPolicy policy) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        attempt(new Call<>(upstream, request, handler, policy, result), 1);
+        return result;
+    }
+
+    /**
+     * Current state of the circuit breaker of every host contacted so far.
+     */
+    public Map<String, CircuitBreaker.State> circuitStates() {
+        Map<String, CircuitBreaker.State> states = new TreeMap<>();
+        breakers.forEach((host, breaker) -> states.put(host, breaker.state()));
+        return states;
+    }
+
+    private record Call<T>(Upstream upstream, HttpRequest request, HttpResponse.BodyHandler<T> handler,
+            RetryPolicy policy, CompletableFuture<HttpResponse<T>> result) {
+    }
+
+    private <T> void attempt(Call<T> call, int attempt) {
+        if (call.result().isDone()) {
+            // Cancelled by the caller; drop any remaining retries
+            return;
+        }
+        CircuitBreaker breaker = breaker(call.request());
+        if (!breaker.tryAcquire()) {
+            call.result().completeExceptionally(new CircuitOpenException(call.request().uri().getHost()));
+            return;
+        }
+        long wait = rateLimits.get(call.upstream()).reserve(call.upstream().getRequestTimeout().toNanos());
+        if (wait < 0) {
+            retryOrFail(call, attempt, new RateLimitExceededException(call.upstream()));
+        } else if (wait > 0) {
+            timer.schedule(() -> dispatch(call, attempt, breaker), wait, TimeUnit.NANOSECONDS);
+        } else {
+            dispatch(call, attempt, breaker);
+        }
+    }
+
+    private <T> void dispatch(Call<T> call, int attempt, CircuitBreaker breaker) {
+        if (call.result().isDone()) {
+            return;
+        }
+        Semaphore hostPermits = permits.get(call.upstream());
+        if (!globalPermits.tryAcquire()) {
+            timer.schedule(() -> dispatch(call, attempt, breaker), PERMIT_POLL_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (!hostPermits.tryAcquire()) {
+            globalPermits.release();
+            timer.schedule(() -> dispatch(call, attempt, breaker), PERMIT_POLL_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        clients.get(call.upstream()).sendAsync(call.request(), call.handler()).whenComplete((response, error) -> {
+            hostPermits.release();
+            globalPermits.release();
+            if (error != null) {
+                breaker.onFailure();
+                retryOrFail(call, attempt, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+                return;
+            }
+            record(breaker, response.statusCode());
+            RetryPolicy policy = call.policy();
+            if (attempt < policy.maxAttempts() && policy.canRetry(call.request(), response.statusCode())) {
+                long retryAfter = RetryPolicy.retryAfterMillis(
+                        response.headers().firstValue("Retry-After").orElse(null), System.currentTimeMillis());
+                if (retryAfter <= policy.maxBackoff().toMillis()) {
+                    retry(call, attempt, Math.max(retryAfter, policy.backoffMillis(attempt)),
+                            "HTTP " + response.statusCode());
+                    return;
+                }
+            }
+            call.result().complete(response);
+        });
+    }
+
+    private <T> void retryOrFail(Call<T> call, int attempt, Throwable error) {
+        if (attempt < call.policy().maxAttempts() && call.policy().canRetry(call.request(), error)) {
+            retry(call, attempt, call.policy().backoffMillis(attempt), String.valueOf(error.getMessage()));
+        } else {
+            call.result().completeExceptionally(error);
+        }
+    }
+
+    private <T> void retry(Call<T> call, int attempt, long delayMillis, String reason) {
+        LOG.log(Level.INFO, "{0} request to {1} failed ({2}), retry {3} in {4} ms", new Object[] {
+                call.upstream(), call.request().uri().getHost(), reason, attempt, delayMillis });
+        timer.schedule(() -> attempt(call, attempt + 1), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private CircuitBreaker breaker(HttpRequest request) {
+        return breakers.computeIfAbsent(String.valueOf(request.uri().getHost()),
+                host -> new CircuitBreaker(BREAKER_FAILURES, BREAKER_OPEN_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static void record(CircuitBreaker breaker, int status) {
+        // 4xx (including 429) means the host is up and answering
+        if (status >= 500) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    /**
+     * Exposes the underlying client for callers that need the raw JDK API.
+     */
+    public HttpClient client(Upstream upstream) {
+        return clients.get(upstream);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private HttpClient buildClient(Upstream upstream, ProxySelector proxy) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(upstream.getVersion())
+                .connectTimeout(upstream.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor);
+        if (proxy != null) {
+            builder.proxy(proxy);
+        }
+        if (upstream == Upstream.MESHY) {
+            // Only this client drops SNI; every other TLS connection in the JVM keeps it
+            builder.sslContext(NoSniSslContext.wrapDefault());
+        }
+        return builder.build();
+    }
+
+    private static ProxySelector proxyFromEnv() {
+        String proxy = System.getenv("https_proxy");
+        if (proxy == null || proxy.isEmpty()) {
+            proxy = System.getenv("HTTPS_PROXY");
+        }
+        if (proxy != null && !proxy.isEmpty()) {
+            try {
+                URI uri = URI.create(proxy);
+                return ProxySelector.of(new InetSocketAddress(uri.getHost(), uri.getPort()));
+            } catch (Exception e) {
+                LOG.warning("Ignoring unparseable proxy setting: " + proxy);
+            }
+        }
+        return null;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package com.primos.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Short-lived cache for responses relayed by the upstream proxy endpoints.
+ * <p>
+ * Entries are keyed on the normalized upstream URL (query parameters sorted,
+ * secret parameters such as API keys removed) so every browser asking for the
+ * same data shares one entry regardless of which key it sent. Concurrent misses
+ * for a key share one upstream request. Bodies are stored gzipped, which keeps
+ * large JSON payloads small and lets clients that accept gzip be served the
+ * stored bytes as-is. When the upstream answers 429 or 5xx, or cannot be
+ * reached, an expired entry is served instead for up to {@code maxStaleMillis}.
+ * <p>
+ * Stored entries remember the upstream's {@code ETag} and
+ * {@code Last-Modified} so an expired entry can be revalidated with a
+ * conditional request; a 304 from upstream renews the entry without
+ * re-downloading it. Each entry also carries its own strong {@link Cached#etag()}
+ * for answering clients' {@code If-None-Match}.
+ */
+public class ProxyResponseCache {
+    public enum Source {
+        HIT, MISS, REVALIDATED, STALE
+    }
+
+    /**
+     * A relayed response with its body gzipped. {@code upstreamEtag} and
+     * {@code upstreamLastModified} are the validators the upstream sent, if
+     * any; {@code etag} is derived from the body.
+     */
+    public record Cached(int status, byte[] gzipped, String contentType, String etag, String upstreamEtag,
+            String upstreamLastModified, long fetchedAt, Source source) {
+        public byte[] body() {
+            return gunzip(gzipped);
+        }
+
+        Cached as(Source source) {
+            return new Cached(status, gzipped, contentType, etag, upstreamEtag, upstreamLastModified, fetchedAt,
+                    source);
+        }
+
+        Cached renewed(long now) {
+            return new Cached(status, gzipped, contentType, etag, upstreamEtag, upstreamLastModified, now,
+                    Source.REVALIDATED);
+        }
+    }
+
+    public record Stats(long hits, long misses, long staleServed, int size) {
+    }
+
+    private final long ttlMillis;
+    private final long maxStaleMillis;
+    private final int maxEntries;
+    private final Set<String> secretParams;
+    private final LongSupplier clock;
+    private final Map<String, Cached> entries;
+    private final Map<String, CompletableFuture<Cached>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+
+    public ProxyResponseCache(long ttlMillis, long maxStaleMillis, int maxEntries, Set<String> secretParams) {
+        this(ttlMillis, maxStaleMillis, maxEntries, secretParams, System::currentTimeMillis);
+    }
+
+    ProxyResponseCache(long ttlMillis, long maxStaleMillis, int maxEntries, Set<String> secretParams,
+            LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxStaleMillis = maxStaleMillis;
+        this.maxEntries = maxEntries;
+        this.secretParams = secretParams;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > ProxyResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached response for {@code url} while it is fresh, otherwise
+     * the result of {@code fetch}, which is shared by every caller waiting on
+     * the same URL. Only 200 responses are stored.
+     *
+     * @param fetch sends the request upstream; called at most once per miss
+     */
+    public CompletableFuture<Cached> get(String url, Supplier<CompletableFuture<HttpResponse<byte[]>>> fetch) {
+        return get(url, ttlMillis, previous -> fetch.get());
+    }
+
+    /**
+     * Like {@link #get(String, Supplier)} with a per-call TTL. {@code fetch}
+     * receives the expired entry, if there is one, so it can make the request
+     * conditional on its upstream validators; an upstream 304 then renews that
+     * entry.
+     */
+    public CompletableFuture<Cached> get(String url, long ttlMillis,
+            Function<Cached, CompletableFuture<HttpResponse<byte[]>>> fetch) {
+        String key = cacheKey(url, secretParams);
+        Cached cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null && clock.getAsLong() - cached.fetchedAt() < ttlMillis) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached.as(Source.HIT));
+        }
+        CompletableFuture<Cached> mine = new CompletableFuture<>();
+        CompletableFuture<Cached> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return existing;
+        }
+        misses.incrementAndGet();
+        CompletableFuture<HttpResponse<byte[]>> request;
+        try {
+            request = fetch.apply(cached);
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        request.handle((response, error) -> resolve(key, ttlMillis, cached, response, error))
+                .whenComplete((result, error) -> {
+                    inFlight.remove(key, mine);
+                    if (error != null) {
+                        mine.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error);
+                    } else {
+                        mine.complete(result);
+                    }
+                });
+        return mine;
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), staleServed.get(), entries.size());
+        }
+    }
+
+    private Cached resolve(String key, long ttlMillis, Cached previous, HttpResponse<byte[]> response,
+            Throwable error) {
+        if (error == null && response.statusCode() == 304 && previous != null) {
+            Cached renewed = previous.renewed(clock.getAsLong());
+            synchronized (entries) {
+                entries.put(key, renewed);
+            }
+            return renewed;
+        }
+        boolean upstreamFailed = error != null || response.statusCode() == 429 || response.statusCode() >= 500;
+        if (upstreamFailed && previous != null && clock.getAsLong() - previous.fetchedAt() < ttlMillis
+                + maxStaleMillis) {
+            staleServed.incrementAndGet();
+            return previous.as(Source.STALE);
+        }
+        if (error != null) {
+            throw new CompletionException(error);
+        }
+        byte[] body = response.body();
+        Cached fetched = new Cached(response.statusCode(), gzip(body),
+                response.headers().firstValue("Content-Type").orElse(null), '"' + ContentHash.of(body) + '"',
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null), clock.getAsLong(), Source.MISS);
+        if (response.statusCode() == 200) {
+            synchronized (entries) {
+                entries.put(key, fetched);
+            }
+        }
+        return fetched;
+    }
+
+    /**
+     * Normalizes an upstream URL into a cache key: query parameters are sorted
+     * and any parameter named in {@code secretParams} is dropped.
+     */
+    static String cacheKey(String url, Set<String> secretParams) {
+        URI uri = URI.create(url);
+        String query = uri.getRawQuery();
+        StringBuilder key = new StringBuilder()
+                .append(uri.getScheme()).append("://").append(uri.getRawAuthority()).append(uri.getRawPath());
+        if (query == null || query.isEmpty()) {
+            return key.toString();
+        }
+        List<String> params = new ArrayList<>();
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            String name = eq < 0 ? param : param.substring(0, eq);
+            if (!param.isEmpty() && !secretParams.contains(name)) {
+                params.add(param);
+            }
+        }
+        params.sort(null);
+        if (!params.isEmpty()) {
+            key.append('?').append(String.join("&", params));
+        }
+        return key.toString();
+    }
+
+    static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, body.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] gunzip(byte[] gzipped) {
+        try (GZIPInputStream gz = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return gz.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
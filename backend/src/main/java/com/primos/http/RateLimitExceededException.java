@@ -0,0 +1,16 @@
+package com.primos.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an upstream's rate limit has no permit for a request:
+ * immediately for {@link OutboundHttpClient#send}, or once the wait would
+ * exceed the request timeout for {@link OutboundHttpClient#sendAsync}.
+ */
+public class RateLimitExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public RateLimitExceededException(Upstream upstream) {
+        super("Rate limit exceeded for " + upstream);
+    }
+}
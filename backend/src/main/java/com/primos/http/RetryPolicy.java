@@ -0,0 +1,104 @@
+package com.primos.http;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How {@link OutboundHttpClient#sendAsync} retries a request: up to
+ * {@code maxAttempts} tries, backing off exponentially from
+ * {@code initialBackoff} to {@code maxBackoff} with jitter, and never sooner
+ * than an upstream's {@code Retry-After}. A {@code Retry-After} longer than
+ * {@code maxBackoff} is not waited out; the response is returned instead.
+ * <p>
+ * Requests with a non-idempotent method (POST, PATCH) are only retried when
+ * the upstream certainly did not process them: connection failures, 429 and
+ * 503. Use {@link #assumingIdempotent()} for POST endpoints that only read,
+ * such as JSON-RPC queries.
+ */
+public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, boolean idempotent) {
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO, false);
+
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+
+    public static RetryPolicy of(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, false);
+    }
+
+    public RetryPolicy assumingIdempotent() {
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, true);
+    }
+
+    /**
+     * Whether a response with the given status is worth another attempt.
+     */
+    public boolean canRetry(HttpRequest request, int status) {
+        if (status == 429 || status == 503) {
+            return true;
+        }
+        return status >= 500 && status != 501 && mayRepeat(request);
+    }
+
+    /**
+     * Whether a request that failed with the given error is worth another
+     * attempt.
+     */
+    public boolean canRetry(HttpRequest request, Throwable error) {
+        if (error instanceof ConnectException || error instanceof HttpConnectTimeoutException
+                || error instanceof RateLimitExceededException) {
+            return true;
+        }
+        return error instanceof IOException && !(error instanceof CircuitOpenException) && mayRepeat(request);
+    }
+
+    /**
+     * Delay before the retry following the given (1-based) attempt: an
+     * exponentially growing ceiling of which at least half is always waited,
+     * the rest chosen at random so that callers failing together do not retry
+     * together.
+     */
+    public long backoffMillis(int attempt) {
+        return backoffMillis(attempt, ThreadLocalRandom.current().nextDouble());
+    }
+
+    long backoffMillis(int attempt, double random) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 30));
+        return ceiling / 2 + (long) (random * (ceiling - ceiling / 2));
+    }
+
+    /**
+     * Parses a {@code Retry-After} header given either in seconds or as an
+     * HTTP date.
+     *
+     * @return the delay it asks for in milliseconds, 0 if absent or unparseable
+     */
+    static long retryAfterMillis(String header, long nowMillis) {
+        if (header == null || header.isBlank()) {
+            return 0;
+        }
+        String value = header.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // not delta-seconds, try an HTTP date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - nowMillis);
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private boolean mayRepeat(HttpRequest request) {
+        return idempotent || IDEMPOTENT_METHODS.contains(request.method());
+    }
+}
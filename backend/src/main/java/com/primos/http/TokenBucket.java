@@ -0,0 +1,64 @@
+package com.primos.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiter. Permits refill continuously at
+ * {@code permitsPerSecond} up to {@code burst}. Nothing here sleeps: blocking
+ * callers take a permit only if one is free right now, while asynchronous
+ * callers reserve the next permit and schedule themselves for when it is due.
+ */
+public class TokenBucket {
+    private final double permitsPerNano;
+    private final double burst;
+    private final LongSupplier clock;
+    private double available;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier clock) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.clock = clock;
+        this.available = burst;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Takes one permit if one is available right now, without waiting.
+     *
+     * @return {@code false} if the bucket is empty
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * Reserves one permit and returns how many nanoseconds the caller must wait
+     * before using it, or -1 (without reserving) if that exceeds
+     * {@code maxWaitNanos}.
+     */
+    synchronized long reserve(long maxWaitNanos) {
+        long now = clock.getAsLong();
+        available = Math.min(burst, available + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        if (available >= 1) {
+            available -= 1;
+            return 0;
+        }
+        long wait = (long) Math.ceil((1 - available) / permitsPerNano);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        // Go into debt; later callers queue behind this reservation.
+        available -= 1;
+        return wait;
+    }
+}
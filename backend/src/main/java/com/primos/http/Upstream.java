@@ -0,0 +1,61 @@
+package com.primos.http;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Upstream APIs the backend talks to. Each upstream gets its own
+ * {@link HttpClient} (and therefore its own connection pool) tuned with the
+ * timeouts, protocol version, concurrency cap and request rate listed here.
+ * The rate can be overridden with {@code OUTBOUND_HTTP_<NAME>_RPS}.
+ */
+public enum Upstream {
+    HELIUS(Duration.ofSeconds(5), Duration.ofSeconds(20), HttpClient.Version.HTTP_2, 16, 10, 20),
+    MAGIC_EDEN(Duration.ofSeconds(5), Duration.ofSeconds(20), HttpClient.Version.HTTP_2, 16, 20, 40),
+    COINGECKO(Duration.ofSeconds(10), Duration.ofSeconds(30), HttpClient.Version.HTTP_2, 8, 0.5, 10),
+    JUPITER(Duration.ofSeconds(10), Duration.ofSeconds(60), HttpClient.Version.HTTP_2, 2, 1, 2),
+    MORALIS(Duration.ofSeconds(5), Duration.ofSeconds(10), HttpClient.Version.HTTP_2, 8, 20, 20),
+    // Meshy's edge rejects SNI from the JDK client, see OutboundHttpClient#buildClient
+    MESHY(Duration.ofSeconds(10), Duration.ofSeconds(60), HttpClient.Version.HTTP_1_1, 4, 2, 5);
+
+    private final Duration connectTimeout;
+    private final Duration requestTimeout;
+    private final HttpClient.Version version;
+    private final int maxConcurrent;
+    private final double requestsPerSecond;
+    private final int burst;
+
+    Upstream(Duration connectTimeout, Duration requestTimeout, HttpClient.Version version, int maxConcurrent,
+            double requestsPerSecond, int burst) {
+        this.connectTimeout = connectTimeout;
+        this.requestTimeout = requestTimeout;
+        this.version = version;
+        this.maxConcurrent = maxConcurrent;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public HttpClient.Version getVersion() {
+        return version;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
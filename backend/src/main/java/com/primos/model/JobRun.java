@@ -0,0 +1,37 @@
+package com.primos.model;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+
+/**
+ * Marker written when a scheduled job finishes its work for a given day, so
+ * reruns can tell the day is already done without scanning the affected
+ * collection. {@code name} and {@code runDate} are unique together.
+ */
+@MongoEntity(collection = "jobRuns")
+public class JobRun extends PanacheMongoEntity {
+    private String name;
+    private String runDate;
+    private long affected;
+    private long durationMillis;
+    private long completedAt = System.currentTimeMillis();
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getRunDate() { return runDate; }
+    public void setRunDate(String runDate) { this.runDate = runDate; }
+
+    public long getAffected() { return affected; }
+    public void setAffected(long affected) { this.affected = affected; }
+
+    public long getDurationMillis() { return durationMillis; }
+    public void setDurationMillis(long durationMillis) { this.durationMillis = durationMillis; }
+
+    public long getCompletedAt() { return completedAt; }
+    public void setCompletedAt(long completedAt) { this.completedAt = completedAt; }
+
+    public static boolean completed(String name, String runDate) {
+        return count("name = ?1 and runDate = ?2", name, runDate) > 0;
+    }
+}
@@ -1,5 +1,7 @@
 package com.primos.model;
 
+import java.util.Date;
+
 import io.quarkus.mongodb.panache.PanacheMongoEntity;
 import io.quarkus.mongodb.panache.common.MongoEntity;
 
@@ -9,6 +11,8 @@ public class Notification extends PanacheMongoEntity {
     private String message;
     private boolean read;
     private long createdAt = System.currentTimeMillis();
+    // Set when read; a TTL index on it expires read notifications
+    private Date readAt;
 
     public String getPublicKey() { return publicKey; }
     public void setPublicKey(String publicKey) { this.publicKey = publicKey; }
@@ -21,4 +25,7 @@ public class Notification extends PanacheMongoEntity {
 
     public long getCreatedAt() { return createdAt; }
     public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public Date getReadAt() { return readAt; }
+    public void setReadAt(Date readAt) { this.readAt = readAt; }
 }
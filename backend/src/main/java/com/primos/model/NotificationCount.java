@@ -0,0 +1,21 @@
+package com.primos.model;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+
+/**
+ * Number of unread {@link Notification}s of one wallet, adjusted with
+ * {@code $inc} as notifications are added, read and deleted.
+ * {@code publicKey} is unique.
+ */
+@MongoEntity(collection = "notificationCounts")
+public class NotificationCount extends PanacheMongoEntity {
+    private String publicKey;
+    private long unread;
+
+    public String getPublicKey() { return publicKey; }
+    public void setPublicKey(String publicKey) { this.publicKey = publicKey; }
+
+    public long getUnread() { return unread; }
+    public void setUnread(long unread) { this.unread = unread; }
+}
@@ -11,6 +11,8 @@ public class Primo3D extends PanacheMongoEntity {
     private String stlUrl;
     private String jobId;
     private String status;
+    // Wallet that asked for the render, notified when it completes
+    private String requestedBy;
 
     public String getTokenAddress() {
         return tokenAddress;
@@ -59,4 +61,12 @@ public class Primo3D extends PanacheMongoEntity {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public String getRequestedBy() {
+        return requestedBy;
+    }
+
+    public void setRequestedBy(String requestedBy) {
+        this.requestedBy = requestedBy;
+    }
 }
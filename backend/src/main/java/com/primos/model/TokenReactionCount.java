@@ -0,0 +1,25 @@
+package com.primos.model;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+
+/**
+ * Running like/dislike totals of one token, kept in step with
+ * {@link TokenReaction} by {@code $inc} updates so reads need no counting.
+ * {@code tokenId} is unique.
+ */
+@MongoEntity(collection = "tokenReactionCounts")
+public class TokenReactionCount extends PanacheMongoEntity {
+    private String tokenId;
+    private long likes;
+    private long dislikes;
+
+    public String getTokenId() { return tokenId; }
+    public void setTokenId(String tokenId) { this.tokenId = tokenId; }
+
+    public long getLikes() { return likes; }
+    public void setLikes(long likes) { this.likes = likes; }
+
+    public long getDislikes() { return dislikes; }
+    public void setDislikes(long dislikes) { this.dislikes = dislikes; }
+}
@@ -10,6 +10,7 @@ public class TrenchContractCaller extends PanacheMongoEntity {
     private Long calledAt;
     private Double marketCapAtCall;
     private String domainAtCall;
+    private boolean marketCapPending; // market cap is still being fetched in the background
 
     public String getContract() {
         return contract;
@@ -50,4 +51,12 @@ public class TrenchContractCaller extends PanacheMongoEntity {
     public void setDomainAtCall(String domainAtCall) {
         this.domainAtCall = domainAtCall;
     }
+
+    public boolean isMarketCapPending() {
+        return marketCapPending;
+    }
+
+    public void setMarketCapPending(boolean marketCapPending) {
+        this.marketCapPending = marketCapPending;
+    }
 }
@@ -1,23 +1,16 @@
 package com.primos.resource;
 
-import java.io.StringReader;
-import java.net.InetSocketAddress;
-import java.net.ProxySelector;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import com.primos.model.BetaCode;
-import com.primos.model.User;
-import com.primos.service.HeliusService;
+import com.primos.service.CoinGeckoService;
 import com.primos.service.PrimoTokensService;
+import com.primos.service.StatsAggregator;
+import com.primos.service.TtlCache;
 
 import jakarta.inject.Inject;
-import jakarta.json.Json;
-import jakarta.json.JsonReader;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.GET;
@@ -26,6 +19,7 @@ import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
 @Path("/api/admin")
 @Produces(MediaType.APPLICATION_JSON)
@@ -35,30 +29,14 @@ public class AdminResource {
     public static final String ADMIN_WALLET = System.getenv().getOrDefault("ADMIN_WALLET",
             "EB5uzfZZrWQ8BPEmMNrgrNMNCHR1qprrsspHNNgVEZa6");
 
-    @Inject
-    HeliusService heliusService;
-
     @Inject
     PrimoTokensService primoTokensService;
 
-    private static final HttpClient CLIENT = createClient();
+    @Inject
+    StatsAggregator statsAggregator;
 
-    private static HttpClient createClient() {
-        String proxy = System.getenv("https_proxy");
-        if (proxy == null || proxy.isEmpty()) {
-            proxy = System.getenv("HTTPS_PROXY");
-        }
-        if (proxy != null && !proxy.isEmpty()) {
-            try {
-                URI uri = URI.create(proxy);
-                return HttpClient.newBuilder()
-                        .proxy(ProxySelector.of(new InetSocketAddress(uri.getHost(), uri.getPort())))
-                        .build();
-            } catch (Exception ignored) {
-            }
-        }
-        return HttpClient.newHttpClient();
-    }
+    @Inject
+    CoinGeckoService coinGeckoService;
 
     private void ensureAdmin(String wallet) {
         if (wallet == null || !ADMIN_WALLET.equals(wallet)) {
@@ -96,98 +74,18 @@ public class AdminResource {
     @Path("/stats")
     public Stats getStats(@HeaderParam("X-Public-Key") String wallet) {
         ensureAdmin(wallet);
-        long totalWallets = User.count();
-        long totalPoints = User.streamAll()
-                .map(u -> (User) u)
-                .mapToInt(User::getPoints)
-                .sum();
-        long primoHolders = User.count("primoHolder", true);
-        long betaCodes = BetaCode.count();
-        long betaCodesRedeemed = BetaCode.count("redeemed", true);
-
-        long primosHeld = 0;
-        long walletsWithPrimos = 0;
-        String heliusKey = System.getenv("REACT_APP_HELIUS_API_KEY");
-        String collection = System.getenv().getOrDefault("REACT_APP_PRIMOS_COLLECTION", "primos");
-        if (heliusKey != null && !heliusKey.isEmpty()) {
-            List<User> users = User.listAll();
-            for (User u : users) {
-                int count = fetchPrimoCount(u.getPublicKey(), heliusKey, collection);
-                if (count > 0) {
-                    walletsWithPrimos++;
-                    primosHeld += count;
-                }
-            }
-        }
-
-        long floorPrice = fetchFloorPrice(collection);
-        long dbMarketCap = primosHeld * floorPrice;
-
-        return new Stats(totalWallets, totalPoints, primoHolders, betaCodes,
-                betaCodesRedeemed, primosHeld, walletsWithPrimos, dbMarketCap, floorPrice);
-    }
-
-    private int fetchPrimoCount(String wallet, String apiKey, String collection) {
-        try {
-            int page = 1;
-            int limit = 100;
-            int total = 0;
-            while (true) {
-                String body = String.format(
-                        "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"searchAssets\",\"params\":{\"ownerAddress\":\"%s\",\"grouping\":[\"collection\",\"%s\"],\"tokenType\":\"regularNft\",\"page\":%d,\"limit\":%d}}",
-                        wallet, collection, page, limit);
-                HttpRequest req = HttpRequest.newBuilder()
-                        .uri(URI.create("https://mainnet.helius-rpc.com/?api-key=" + apiKey))
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(body))
-                        .build();
-                HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
-                if (resp.statusCode() != 200) {
-                    break;
-                }
-                try (JsonReader reader = Json.createReader(new StringReader(resp.body()))) {
-                    var obj = reader.readObject();
-                    var result = obj.getJsonObject("result");
-                    if (result == null)
-                        break;
-                    var items = result.getJsonArray("items");
-                    if (items == null)
-                        break;
-                    total += items.size();
-                    if (items.size() < limit) {
-                        break;
-                    }
-                    page++;
-                }
-            }
-            return total;
-        } catch (Exception e) {
-            return 0;
-        }
+        StatsAggregator.Totals totals = statsAggregator.totals();
+        long dbMarketCap = totals.primosHeld() * totals.floorPrice();
+        return new Stats(totals.totalWallets(), totals.totalPoints(), totals.primoHolders(), totals.betaCodes(),
+                totals.betaCodesRedeemed(), totals.primosHeld(), totals.walletsWithPrimos(), dbMarketCap,
+                totals.floorPrice());
     }
 
-    private long fetchFloorPrice(String collection) {
-        try {
-            String url = String.format("https://api-mainnet.magiceden.dev/v2/collections/%s/stats", collection);
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .build();
-            HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
-            if (resp.statusCode() != 200) {
-                return 0L;
-            }
-            try (JsonReader reader = Json.createReader(new StringReader(resp.body()))) {
-                var obj = reader.readObject();
-                var num = obj.get("floorPrice");
-                if (num == null || num.getValueType() != jakarta.json.JsonValue.ValueType.NUMBER) {
-                    return 0L;
-                }
-                return obj.getJsonNumber("floorPrice").longValue();
-            }
-        } catch (Exception e) {
-            return 0L;
-        }
+    @GET
+    @Path("/cache-stats")
+    public Map<String, TtlCache.Stats> getCacheStats(@HeaderParam("X-Public-Key") String wallet) {
+        ensureAdmin(wallet);
+        return Map.of("marketCaps", coinGeckoService.marketCapCacheStats());
     }
 
     @POST
@@ -197,6 +95,7 @@ public class AdminResource {
         BetaCode code = new BetaCode();
         code.setCode("BETA-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
         code.persist();
+        statsAggregator.betaCodeCreated();
         return code;
     }
 
@@ -204,11 +103,12 @@ public class AdminResource {
      * Discovers tokens held by Primo holders and adds them to Trenches.
      * This endpoint fetches all tokens held by Primo community members
      * and automatically adds popular tokens to the Trenches for community tracking.
+     * Discovery runs in the background, so the response is 202 Accepted.
      */
     @POST
     @Path("/discover-primo-tokens")
-    public String discoverPrimoTokens(@HeaderParam("X-Public-Key") String wallet) {
+    public Response discoverPrimoTokens(@HeaderParam("X-Public-Key") String wallet) {
         ensureAdmin(wallet);
-        return primoTokensService.discoverAndAddPrimoTokens();
+        return Response.accepted(primoTokensService.discoverAndAddPrimoTokens()).build();
     }
 }
@@ -1,24 +1,44 @@
 package com.primos.resource;
 
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
-
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.primos.config.Env;
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.ProxyResponseCache;
+import com.primos.http.RetryPolicy;
+import com.primos.http.Upstream;
+
+import io.smallrye.common.annotation.Blocking;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
 /**
- * Proxy resource for CoinGecko API to handle CORS issues
+ * Proxy resource for CoinGecko API to handle CORS issues.
+ * <p>
+ * Upstream responses go through a {@link ProxyResponseCache} keyed on the
+ * upstream URL without the API key, so popular tokens cost one CoinGecko call
+ * per {@code COINGECKO_PROXY_TTL_SECONDS} and keep being served (stale) while
+ * CoinGecko rate limits us or is down. Full coin lookups by contract are
+ * large and rarely shared, so they are streamed through instead of cached.
  */
 @Path("/api/coingecko")
 public class CoinGeckoProxyResource {
+    private static final Logger LOG = Logger.getLogger(CoinGeckoProxyResource.class.getName());
 
     private static final String COINGECKO_BASE_URL = "https://api.coingecko.com/api/v3";
     private static final String CORS_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
@@ -27,15 +47,17 @@ public class CoinGeckoProxyResource {
     private static final String CONTENT_TYPE = "Content-Type";
     private static final String WILDCARD_ORIGIN = "*";
     private static final String GET_METHOD = "GET";
+    private static final long TTL_SECONDS = Env.positiveInt("COINGECKO_PROXY_TTL_SECONDS", 60);
+    private static final ProxyResponseCache CACHE = new ProxyResponseCache(TimeUnit.SECONDS.toMillis(TTL_SECONDS),
+            TimeUnit.MINUTES.toMillis(10), 2_000, Set.of("x_cg_demo_api_key", "x_cg_pro_api_key"));
 
-    private static final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    @Inject
+    OutboundHttpClient http;
 
     @GET
     @Path("/simple/token_price/{network}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getSimpleTokenPrice(
+    public CompletionStage<Response> getSimpleTokenPrice(
             @PathParam("network") String network,
             @QueryParam("contract_addresses") String contractAddresses,
             @QueryParam("vs_currencies") String vsCurrencies,
@@ -43,7 +65,9 @@ public class CoinGeckoProxyResource {
             @QueryParam("include_24hr_vol") String include24hrVol,
             @QueryParam("include_24hr_change") String include24hrChange,
             @QueryParam("include_last_updated_at") String includeLastUpdatedAt,
-            @QueryParam("x_cg_demo_api_key") String demoApiKey) {
+            @QueryParam("x_cg_demo_api_key") String demoApiKey,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
 
         try {
             StringBuilder urlBuilder = new StringBuilder()
@@ -79,46 +103,28 @@ public class CoinGeckoProxyResource {
                 url = url.substring(0, url.length() - 1);
             }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(30))
-                    .header("Accept", "application/json")
-                    .header("User-Agent", "PrimosMarketplace/1.0")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            return Response.status(response.statusCode())
-                    .entity(response.body())
-                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .header(CORS_ALLOW_METHODS, GET_METHOD)
-                    .header(CORS_ALLOW_HEADERS, CONTENT_TYPE)
-                    .build();
-
-        } catch (java.io.IOException e) {
-            System.err.println("Error proxying CoinGecko request: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"Failed to fetch data from CoinGecko\"}")
-                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .build();
-        } catch (java.lang.InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("CoinGecko request interrupted: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"Request interrupted\"}")
+            return relay(url, acceptEncoding, ifNoneMatch).exceptionally(e -> {
+                LOG.log(Level.WARNING, "Error proxying CoinGecko request: {0}", e.getMessage());
+                return error("{\"error\": \"Failed to fetch data from CoinGecko\"}");
+            });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid request\"}")
                     .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .build();
+                    .build());
         }
     }
 
     @GET
     @Path("/coins/{network}/contract/{contractAddress}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getTokenByContract(
+    @Blocking
+    public CompletionStage<Response> getTokenByContract(
             @PathParam("network") String network,
             @PathParam("contractAddress") String contractAddress,
-            @QueryParam("x_cg_demo_api_key") String demoApiKey) {
+            @QueryParam("x_cg_demo_api_key") String demoApiKey,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
 
         try {
             String url = COINGECKO_BASE_URL + "/coins/" + network + "/contract/" + contractAddress;
@@ -126,36 +132,31 @@ public class CoinGeckoProxyResource {
                 url += "?x_cg_demo_api_key=" + demoApiKey;
             }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(30))
+            HttpRequest.Builder request = http.request(Upstream.COINGECKO, url)
                     .header("Accept", "application/json")
-                    .header("User-Agent", "PrimosMarketplace/1.0")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            return Response.status(response.statusCode())
-                    .entity(response.body())
-                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .header(CORS_ALLOW_METHODS, GET_METHOD)
-                    .header(CORS_ALLOW_HEADERS, CONTENT_TYPE)
-                    .build();
-
-        } catch (java.io.IOException e) {
-            System.err.println("Error proxying CoinGecko token request: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"Failed to fetch data from CoinGecko\"}")
-                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .build();
-        } catch (java.lang.InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("CoinGecko token request interrupted: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"Request interrupted\"}")
+                    .header("User-Agent", "PrimosMarketplace/1.0");
+            if (ProxyResponses.acceptsGzip(acceptEncoding)) {
+                request.header("Accept-Encoding", "gzip");
+            }
+            if (ifNoneMatch != null) {
+                request.header("If-None-Match", ifNoneMatch);
+            }
+            return http.sendAsync(Upstream.COINGECKO, request.build(), HttpResponse.BodyHandlers.ofInputStream(),
+                    RetryPolicy.NONE)
+                    .thenApply(response -> ProxyResponses.stream(response)
+                            .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
+                            .header(CORS_ALLOW_METHODS, GET_METHOD)
+                            .header(CORS_ALLOW_HEADERS, CONTENT_TYPE)
+                            .build())
+                    .exceptionally(e -> {
+                        LOG.log(Level.WARNING, "Error proxying CoinGecko token request: {0}", e.getMessage());
+                        return error("{\"error\": \"Failed to fetch data from CoinGecko\"}");
+                    });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid request\"}")
                     .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .build();
+                    .build());
         }
     }
 
@@ -183,7 +184,7 @@ public class CoinGeckoProxyResource {
                     .build();
 
         } catch (Exception e) {
-            System.err.println("Error in pools endpoint: " + e.getMessage());
+            LOG.log(Level.WARNING, "Error in pools endpoint: {0}", e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity("{\"error\": \"Failed to fetch pools data\"}")
                     .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
@@ -194,10 +195,12 @@ public class CoinGeckoProxyResource {
     @GET
     @Path("/nfts/{collectionId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getNFTCollectionData(
+    public CompletionStage<Response> getNFTCollectionData(
             @PathParam("collectionId") String collectionId,
             @QueryParam("platform") String platform,
-            @QueryParam("api_key") String apiKey) {
+            @QueryParam("api_key") String apiKey,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
 
         try {
             StringBuilder urlBuilder = new StringBuilder()
@@ -218,36 +221,37 @@ public class CoinGeckoProxyResource {
                 url = url.substring(0, url.length() - 1);
             }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(30))
+            return relay(url, acceptEncoding, ifNoneMatch).exceptionally(e -> {
+                LOG.log(Level.WARNING, "Error proxying CoinGecko NFT request: {0}", e.getMessage());
+                return error("{\"error\": \"Failed to fetch NFT collection data from CoinGecko\"}");
+            });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid request\"}")
+                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
+                    .build());
+        }
+    }
+
+    private CompletionStage<Response> relay(String url, String acceptEncoding, String ifNoneMatch) {
+        return CACHE.get(url, () -> {
+            HttpRequest request = http.request(Upstream.COINGECKO, url)
                     .header("Accept", "application/json")
                     .header("User-Agent", "PrimosMarketplace/1.0")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            return Response.status(response.statusCode())
-                    .entity(response.body())
-                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .header(CORS_ALLOW_METHODS, GET_METHOD)
-                    .header(CORS_ALLOW_HEADERS, CONTENT_TYPE)
                     .build();
+            return http.sendAsync(Upstream.COINGECKO, request, HttpResponse.BodyHandlers.ofByteArray(),
+                    RetryPolicy.NONE);
+        }).thenApply(cached -> ProxyResponses.from(cached, acceptEncoding, ifNoneMatch, TTL_SECONDS)
+                .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
+                .header(CORS_ALLOW_METHODS, GET_METHOD)
+                .header(CORS_ALLOW_HEADERS, CONTENT_TYPE)
+                .build());
+    }
 
-        } catch (java.io.IOException e) {
-            System.err.println("Error proxying CoinGecko NFT request: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"Failed to fetch NFT collection data from CoinGecko\"}")
-                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .build();
-        } catch (java.lang.InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("CoinGecko NFT request interrupted: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"NFT request interrupted\"}")
-                    .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
-                    .build();
-        }
+    private static Response error(String body) {
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(body)
+                .header(CORS_ALLOW_ORIGIN, WILDCARD_ORIGIN)
+                .build();
     }
 }
@@ -2,6 +2,7 @@ package com.primos.resource;
 
 public class LoginRequest {
     public String publicKey;
+    /** Reported by the client and ignored; holder status comes from the chain. */
     public boolean primoHolder;
     public String betaCode;
 }
@@ -1,20 +1,17 @@
 package com.primos.resource;
 
-import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.ProxySelector;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.Base64;
+import java.util.concurrent.CompletionStage;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.RetryPolicy;
+import com.primos.http.Upstream;
 
 import org.jboss.logging.Logger;
 
+import io.smallrye.common.annotation.Blocking;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -34,64 +31,22 @@ public class MagicEdenBuyNowResource {
 
     private static final String API_BASE = "https://api-mainnet.magiceden.dev";
     private static final String API_KEY = System.getenv("MAGICEDEN_API_KEY");
-    private static final HttpClient CLIENT = createClient();
-    private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    private static HttpClient createClient() {
-        String proxy = System.getenv("https_proxy");
-        if (proxy == null || proxy.isEmpty()) {
-            proxy = System.getenv("HTTPS_PROXY");
-        }
-        if (proxy != null && !proxy.isEmpty()) {
-            try {
-                URI uri = URI.create(proxy);
-                return HttpClient.newBuilder()
-                        .proxy(ProxySelector.of(new InetSocketAddress(uri.getHost(), uri.getPort())))
-                        .build();
-            } catch (Exception ignored) {
-                // Intentionally ignore proxy parsing errors and fall back to default client
-            }
-        }
-        return HttpClient.newHttpClient();
-    }
-
-    private static void encodeBuffer(ObjectNode parent, String field) {
-        JsonNode node = parent.get(field);
-        if (node instanceof ObjectNode obj) {
-            JsonNode data = obj.get("data");
-            if (data != null && data.isArray()) {
-                byte[] bytes = new byte[data.size()];
-                for (int i = 0; i < data.size(); i++) {
-                    bytes[i] = (byte) data.get(i).asInt();
-                }
-                obj.put("data", Base64.getEncoder().encodeToString(bytes));
-                obj.remove("type");
-            }
-        }
-    }
-
-    private static void processBuffers(ObjectNode node) {
-        encodeBuffer(node, "txSigned");
-        encodeBuffer(node, "txUnsigned");
-        JsonNode v0 = node.get("v0");
-        if (v0 instanceof ObjectNode obj) {
-            encodeBuffer(obj, "txSigned");
-            encodeBuffer(obj, "txUnsigned");
-        }
-    }
+    @Inject
+    OutboundHttpClient http;
 
     private static final String DEFAULT_AUCTION_HOUSE = "E8cU1WiRWjanGxmn96ewBgk9vPTcL6AEZ1t6F6fkgUWe";
 
     @GET
-    public Response buyNow(@QueryParam("buyer") String buyer,
+    @Blocking
+    public CompletionStage<Response> buyNow(@QueryParam("buyer") String buyer,
             @QueryParam("seller") String seller,
             @QueryParam("auctionHouseAddress") String auctionHouse,
             @QueryParam("tokenMint") String tokenMint,
             @QueryParam("tokenATA") String tokenATA,
             @QueryParam("price") String price,
             @QueryParam("sellerReferral") String sellerReferral,
-            @QueryParam("sellerExpiry") String sellerExpiry)
-            throws IOException, InterruptedException {
+            @QueryParam("sellerExpiry") String sellerExpiry) {
         String ah = (auctionHouse == null || auctionHouse.isBlank()) ? DEFAULT_AUCTION_HOUSE : auctionHouse;
         StringBuilder url = new StringBuilder(API_BASE)
                 .append("/v2/instructions/buy_now?buyer=").append(buyer)
@@ -107,28 +62,25 @@ public class MagicEdenBuyNowResource {
             url.append("&sellerExpiry=").append(sellerExpiry);
         }
         LOG.infof("Requesting buy now tx buyer=%s tokenMint=%s price=%s", buyer, tokenMint, price);
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(url.toString()))
-                .GET();
+        HttpRequest.Builder builder = http.request(Upstream.MAGIC_EDEN, url.toString());
         if (API_KEY != null && !API_KEY.isBlank()) {
             builder.header("Authorization", "Bearer " + API_KEY);
         }
-        HttpResponse<String> resp;
-        try {
-            resp = CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            LOG.error("Failed to fetch buy now instructions", e);
-            throw e;
-        }
+        return http.sendAsync(Upstream.MAGIC_EDEN, builder.build(), HttpResponse.BodyHandlers.ofByteArray(),
+                RetryPolicy.NONE).whenComplete((resp, e) -> {
+                    if (e != null) {
+                        LOG.error("Failed to fetch buy now instructions", e);
+                    }
+                }).thenApply(MagicEdenBuyNowResource::toResponse);
+    }
 
+    private static Response toResponse(HttpResponse<byte[]> resp) {
         int status = resp.statusCode() == 304 ? 200 : resp.statusCode();
         LOG.debugf("Magic Eden response status: %d", status);
-        String body = resp.body();
-        if (body != null && !body.isEmpty()) {
+        byte[] body = resp.body();
+        if (body != null && body.length > 0) {
             try {
-                ObjectNode json = (ObjectNode) MAPPER.readTree(body);
-                processBuffers(json);
-                body = MAPPER.writeValueAsString(json);
+                body = TxBufferTranscoder.transcode(body);
             } catch (Exception e) {
                 LOG.error("Failed to parse Magic Eden response", e);
             }
@@ -1,68 +1,115 @@
 package com.primos.resource;
 
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.ProxyResponseCache;
+import com.primos.http.RetryPolicy;
+import com.primos.http.Upstream;
+
+import io.smallrye.common.annotation.Blocking;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.net.ProxySelector;
-import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 /**
  * Simple proxy endpoint that forwards requests to the Magic Eden API. This is
  * used when the frontend is deployed on the same host as the backend (e.g.
  * Render) and serverless functions are unavailable.
+ * <p>
+ * Responses are cached per upstream URL for a TTL picked by {@link #ROUTES}:
+ * fast-moving stats, listings and activities for seconds, token and collection
+ * metadata for an hour. Expired entries are revalidated upstream with
+ * {@code If-None-Match}/{@code If-Modified-Since}, and clients sending a
+ * matching {@code If-None-Match} get a 304.
+ * <p>
+ * Routes without a TTL (per-wallet data and anything unlisted) are not cached
+ * but streamed: the upstream body is piped to the client as it arrives, in the
+ * encoding the client asked for, and the client's {@code If-None-Match} is
+ * forwarded upstream.
  */
 @Path("/api/proxy")
 @Produces(MediaType.APPLICATION_JSON)
 public class MagicEdenProxyResource {
 
     private static final String API_BASE = "https://api-mainnet.magiceden.dev";
-    private static final HttpClient CLIENT = createClient();
 
-    private static HttpClient createClient() {
-        String proxy = System.getenv("https_proxy");
-        if (proxy == null || proxy.isEmpty()) {
-            proxy = System.getenv("HTTPS_PROXY");
-        }
-        if (proxy != null && !proxy.isEmpty()) {
-            try {
-                URI uri = URI.create(proxy);
-                return HttpClient.newBuilder()
-                        .proxy(ProxySelector.of(new InetSocketAddress(uri.getHost(), uri.getPort())))
-                        .build();
-            } catch (Exception ignored) {
-            }
-        }
-        return HttpClient.newHttpClient();
+    record Route(Pattern path, Duration ttl) {
     }
 
+    // First match wins; paths are relative to API_BASE
+    static final List<Route> ROUTES = List.of(
+            new Route(Pattern.compile("v2/collections/[^/]+/stats"), Duration.ofSeconds(30)),
+            new Route(Pattern.compile("v2/collections/[^/]+/holder_stats"), Duration.ofMinutes(5)),
+            new Route(Pattern.compile("v2/(collections|tokens)/[^/]+/(listings|activities|offers_received)"),
+                    Duration.ofSeconds(15)),
+            new Route(Pattern.compile("v2/wallets/.+"), Duration.ZERO),
+            new Route(Pattern.compile("v2/(collections|tokens)/[^/]+"), Duration.ofHours(1)));
+    // Unlisted routes are streamed
+    static final Duration DEFAULT_TTL = Duration.ZERO;
+
+    private static final ProxyResponseCache CACHE = new ProxyResponseCache(Duration.ofSeconds(30).toMillis(),
+            TimeUnit.MINUTES.toMillis(5), 5_000, Set.of());
+
+    @Inject
+    OutboundHttpClient http;
+
     @GET
     @Path("{path: .+}")
-    public Response proxy(@PathParam("path") String path, @Context UriInfo uriInfo)
-            throws IOException, InterruptedException {
+    @Blocking
+    public CompletionStage<Response> proxy(@PathParam("path") String path, @Context UriInfo uriInfo,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
         // Reconstruct the target URI including any query parameters so that
         // pagination and other Magic Eden features function correctly.
-        String query = uriInfo.getRequestUri().getQuery();
+        String query = uriInfo.getRequestUri().getRawQuery();
         String target = API_BASE + "/" + path + (query != null ? "?" + query : "");
+        Duration ttl = ttlFor(path);
+        if (ttl.isZero()) {
+            HttpRequest.Builder req = http.request(Upstream.MAGIC_EDEN, target);
+            if (ProxyResponses.acceptsGzip(acceptEncoding)) {
+                req.header("Accept-Encoding", "gzip");
+            }
+            if (ifNoneMatch != null) {
+                req.header("If-None-Match", ifNoneMatch);
+            }
+            return http.sendAsync(Upstream.MAGIC_EDEN, req.build(), HttpResponse.BodyHandlers.ofInputStream(),
+                    RetryPolicy.NONE).thenApply(resp -> ProxyResponses.stream(resp).build());
+        }
 
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(target))
-                .GET()
-                .build();
-
-        HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
+        return CACHE.get(target, ttl.toMillis(), previous -> {
+            HttpRequest.Builder req = http.request(Upstream.MAGIC_EDEN, target);
+            if (previous != null && previous.upstreamEtag() != null) {
+                req.header("If-None-Match", previous.upstreamEtag());
+            }
+            if (previous != null && previous.upstreamLastModified() != null) {
+                req.header("If-Modified-Since", previous.upstreamLastModified());
+            }
+            return http.sendAsync(Upstream.MAGIC_EDEN, req.build(), HttpResponse.BodyHandlers.ofByteArray(),
+                    RetryPolicy.NONE);
+        }).thenApply(cached -> ProxyResponses.from(cached, acceptEncoding, ifNoneMatch, ttl.toSeconds()).build());
+    }
 
-        // Some platforms strip CORS headers from 304 responses, so return 200 instead
-        int status = resp.statusCode() == 304 ? 200 : resp.statusCode();
-        return Response.status(status).entity(resp.body()).build();
+    static Duration ttlFor(String path) {
+        for (Route route : ROUTES) {
+            if (route.path().matcher(path).matches()) {
+                return route.ttl();
+            }
+        }
+        return DEFAULT_TTL;
     }
 }
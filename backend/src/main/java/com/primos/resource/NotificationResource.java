@@ -1,24 +1,74 @@
 package com.primos.resource;
 
 import com.primos.model.Notification;
+import com.primos.service.NotificationHub;
 import com.primos.service.NotificationService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
-import java.util.List;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.util.Map;
 import org.bson.types.ObjectId;
 
 @Path("/api/notifications")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class NotificationResource {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Inject
     NotificationService service;
 
+    @Inject
+    NotificationHub hub;
+
+    /**
+     * Newest notifications first, {@code limit} at a time (default 50, at
+     * most 100). When there are more, the {@code X-Next-Cursor} header holds
+     * the {@code cursor} to pass for the next page.
+     */
+    @GET
+    public Response get(@HeaderParam("X-Public-Key") String publicKey, @QueryParam("cursor") String cursor,
+            @QueryParam("limit") Integer limit) {
+        NotificationService.Page page;
+        try {
+            page = service.forUser(publicKey, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        Response.ResponseBuilder response = Response.ok(page.items());
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.build();
+    }
+
+    @GET
+    @Path("/unread-count")
+    public Map<String, Long> unreadCount(@HeaderParam("X-Public-Key") String publicKey) {
+        return Map.of("unread", publicKey != null ? service.unreadCount(publicKey) : 0L);
+    }
+
+    /**
+     * Pushes the wallet's new notifications as they are created. EventSource
+     * cannot set headers, so the wallet may also be passed as a query
+     * parameter; reconnecting clients resume after {@code Last-Event-ID}.
+     */
     @GET
-    public List<Notification> get(@HeaderParam("X-Public-Key") String publicKey) {
-        return service.forUser(publicKey);
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void stream(@HeaderParam("X-Public-Key") String publicKey, @QueryParam("publicKey") String queryKey,
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId, @Context SseEventSink sink,
+            @Context Sse sse) {
+        String wallet = publicKey != null && !publicKey.isEmpty() ? publicKey : queryKey;
+        if (wallet == null || wallet.isEmpty()) {
+            throw new ForbiddenException();
+        }
+        hub.subscribe(wallet, sink, sse, lastEventId);
     }
 
     @PUT
@@ -1,8 +1,11 @@
 package com.primos.resource;
 
+import java.util.concurrent.CompletionStage;
+
 import com.primos.model.Primo3D;
 import com.primos.service.Primo3DService;
 
+import io.smallrye.common.annotation.Blocking;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.GET;
@@ -22,7 +25,8 @@ public class Primo3DResource {
     Primo3DService service;
 
     @POST
-    public Primo3D renderPrimo(@HeaderParam("X-Public-Key") String publicKey, Primo3D req) {
+    @Blocking
+    public CompletionStage<Primo3D> renderPrimo(@HeaderParam("X-Public-Key") String publicKey, Primo3D req) {
         return service.create(publicKey, req);
     }
 
@@ -1,9 +1,9 @@
 package com.primos.resource;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.primos.model.PrimoToken;
+import com.primos.service.PrimoTokenSnapshot;
 import com.primos.service.PrimoTokensService;
 
 import jakarta.inject.Inject;
@@ -11,57 +11,46 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 
 @Path("/api/primo-tokens")
 @Produces(MediaType.APPLICATION_JSON)
 public class PrimoTokenResource {
+    private static final String CACHE_CONTROL = "public, max-age=60, stale-while-revalidate=300";
 
     @Inject
     PrimoTokensService primoTokensService;
 
     @GET
-    public List<PrimoToken> getTokens() {
-        return primoTokensService.updateAndGetPrimoTokens();
+    public Response getTokens(@Context Request request) {
+        PrimoTokenSnapshot snapshot = primoTokensService.currentSnapshot();
+        EntityTag tag = new EntityTag(snapshot.etag());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL).build();
+        }
+        return Response.ok(snapshot.json()).tag(tag).header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL).build();
     }
 
     @GET
     @Path("/top-by-change")
-    public List<PrimoToken> getTopTokensByChange(@QueryParam("limit") Integer limit) {
+    public Response getTopTokensByChange(@QueryParam("limit") Integer limit, @Context Request request) {
         int maxResults = limit != null && limit > 0 ? Math.min(limit, 50) : 10;
 
-        List<PrimoToken> allTokens = primoTokensService.updateAndGetPrimoTokens();
-
-        // First try to get tokens with price change data
-        List<PrimoToken> tokensWithPriceChange = allTokens.stream()
-                .filter(token -> token.getPriceChange24h() != null)
-                .sorted((a, b) -> {
-                    Double aPriceChange = a.getPriceChange24h();
-                    Double bPriceChange = b.getPriceChange24h();
-                    if (aPriceChange == null)
-                        aPriceChange = 0.0;
-                    if (bPriceChange == null)
-                        bPriceChange = 0.0;
-                    return Double.compare(bPriceChange, aPriceChange);
-                })
-                .toList();
-
-        // If we don't have enough tokens with price change, add tokens without price
-        // change
-        // sorted by holder count
-        if (tokensWithPriceChange.size() < maxResults) {
-            List<PrimoToken> remainingTokens = allTokens.stream()
-                    .filter(token -> token.getPriceChange24h() == null)
-                    .sorted((a, b) -> Integer.compare(b.getHolderCount(), a.getHolderCount()))
-                    .toList();
-
-            // Combine the lists
-            List<PrimoToken> result = new ArrayList<>(tokensWithPriceChange);
-            int needed = maxResults - tokensWithPriceChange.size();
-            result.addAll(remainingTokens.stream().limit(needed).toList());
-            return result;
+        // The snapshot already orders tokens with a price change first, then the
+        // rest by holder count, so the top N is just a prefix
+        PrimoTokenSnapshot snapshot = primoTokensService.currentSnapshot();
+        EntityTag tag = new EntityTag(snapshot.etag() + "-" + maxResults);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL).build();
         }
-
-        return tokensWithPriceChange.stream().limit(maxResults).toList();
+        List<PrimoToken> top = snapshot.topByPriceChange(maxResults);
+        return Response.ok(top).tag(tag).header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL).build();
     }
 }
@@ -0,0 +1,133 @@
+package com.primos.resource;
+
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Locale;
+
+import com.primos.http.ProxyResponseCache;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+/**
+ * Builds responses for the proxy resources, either from
+ * {@link ProxyResponseCache} entries (gzipped bytes are sent as-is to clients
+ * that accept gzip, and a matching {@code If-None-Match} is answered with a
+ * bodiless 304) or by streaming an upstream body straight through.
+ */
+final class ProxyResponses {
+    private static final List<String> STREAMED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_ENCODING, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+
+    private ProxyResponses() {
+    }
+
+    /**
+     * Relays an upstream response without buffering it: the body is copied to
+     * the client through a fixed-size buffer as it arrives, and the upstream
+     * client only reads ahead as far as its own bounded queue allows, so
+     * memory per request stays constant whatever the payload size. The body
+     * is passed through byte for byte, so {@code Content-Encoding} is kept.
+     * <p>
+     * The copy blocks, so the resource method must run on a worker thread.
+     */
+    static Response.ResponseBuilder stream(HttpResponse<InputStream> upstream) {
+        InputStream body = upstream.body();
+        StreamingOutput output = out -> {
+            try (InputStream in = body) {
+                in.transferTo(out);
+            }
+        };
+        Response.ResponseBuilder builder = Response.status(upstream.statusCode()).entity(output);
+        for (String header : STREAMED_HEADERS) {
+            upstream.headers().firstValue(header).ifPresent(value -> builder.header(header, value));
+        }
+        return builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Whether the client accepts a gzipped body: {@code gzip} (or
+     * {@code x-gzip}, or failing those {@code *}) is listed with a non-zero
+     * q-value, so {@code gzip;q=0} opts out.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = Math.max(gzip, q);
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        return (gzip >= 0 ? gzip : any) > 0;
+    }
+
+    static Response.ResponseBuilder from(ProxyResponseCache.Cached cached, String acceptEncoding,
+            String ifNoneMatch, long maxAgeSeconds) {
+        boolean ok = cached.status() == 200;
+        if (ok && matches(ifNoneMatch, cached.etag())) {
+            return Response.notModified()
+                    .tag(unquote(cached.etag()))
+                    .header(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAgeSeconds)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        Response.ResponseBuilder builder = Response.status(cached.status())
+                .entity(gzip ? cached.gzipped() : cached.body())
+                .type(cached.contentType() != null ? cached.contentType() : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header("X-Cache", cached.source());
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (ok) {
+            builder.tag(unquote(cached.etag()))
+                    .header(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAgeSeconds);
+        }
+        return builder;
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header (a list of possibly weak tags,
+     * or {@code *}) matches the given quoted entity tag.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String unquote(String etag) {
+        return etag.length() > 1 && etag.startsWith("\"") ? etag.substring(1, etag.length() - 1) : etag;
+    }
+}
@@ -0,0 +1,23 @@
+package com.primos.resource;
+
+import com.primos.http.RateLimitExceededException;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Blocking endpoints fail fast when an upstream's rate limit is exhausted
+ * instead of holding the request thread; tell the client to retry shortly.
+ */
+@Provider
+public class RateLimitExceededMapper implements ExceptionMapper<RateLimitExceededException> {
+    @Override
+    public Response toResponse(RateLimitExceededException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, 1)
+                .entity(e.getMessage())
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.primos.resource;
 
 import com.primos.model.TelegramData;
 import com.primos.service.HeliusTokenService;
+import java.util.concurrent.CompletionStage;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
@@ -18,11 +19,8 @@ public class TelegramResource {
 
     @GET
     @Path("/{contract}")
-    public TelegramData getData(@PathParam("contract") String contract) {
-        TelegramData data = heliusTokenService.fetchTokenData(contract);
-        if (data == null) {
-            return new TelegramData();
-        }
-        return data;
+    public CompletionStage<TelegramData> getData(@PathParam("contract") String contract) {
+        return heliusTokenService.fetchTokenData(contract)
+                .thenApply(data -> data == null ? new TelegramData() : data);
     }
 }
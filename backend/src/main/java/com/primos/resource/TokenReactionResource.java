@@ -1,8 +1,16 @@
 package com.primos.resource;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import com.primos.model.TokenReaction.ReactionType;
 import com.primos.service.TokenReactionService;
+import com.primos.service.TokenReactionService.ReactionCounts;
 
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.GET;
@@ -18,6 +26,8 @@ import jakarta.ws.rs.core.MediaType;
 @Consumes(MediaType.APPLICATION_JSON)
 public class TokenReactionResource {
 
+    static final int MAX_BATCH_SIZE = 500;
+
     private final TokenReactionService service;
 
     public TokenReactionResource(TokenReactionService service) {
@@ -63,13 +73,53 @@ public class TokenReactionResource {
         }
     }
 
+    public static class BatchRequest {
+        private List<String> tokenIds;
+
+        public List<String> getTokenIds() {
+            return tokenIds;
+        }
+
+        public void setTokenIds(List<String> tokenIds) {
+            this.tokenIds = tokenIds;
+        }
+    }
+
+    /**
+     * Reactions for a whole grid of tokens in one call, keyed by tokenId.
+     */
+    @POST
+    @Path("/batch")
+    public Map<String, ReactionResponse> batch(BatchRequest request, @HeaderParam("X-Public-Key") String wallet) {
+        if (request == null || request.getTokenIds() == null) {
+            throw new BadRequestException("tokenIds required");
+        }
+        Set<String> tokenIds = new LinkedHashSet<>(request.getTokenIds());
+        tokenIds.remove(null);
+        if (tokenIds.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("At most " + MAX_BATCH_SIZE + " tokenIds per request");
+        }
+        if (tokenIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, ReactionCounts> counts = service.counts(tokenIds);
+        Map<String, ReactionType> userReactions = wallet != null && !wallet.isEmpty()
+                ? service.getUserReactions(tokenIds, wallet)
+                : Map.of();
+        Map<String, ReactionResponse> result = new LinkedHashMap<>();
+        for (String tokenId : tokenIds) {
+            ReactionCounts c = counts.get(tokenId);
+            result.put(tokenId, new ReactionResponse(c.likes(), c.dislikes(), userReactions.get(tokenId)));
+        }
+        return result;
+    }
+
     @GET
     @Path("/{tokenId}")
     public ReactionResponse get(@PathParam("tokenId") String tokenId, @HeaderParam("X-Public-Key") String wallet) {
-        long likes = service.countLikes(tokenId);
-        long dislikes = service.countDislikes(tokenId);
+        ReactionCounts counts = service.counts(tokenId);
         ReactionType userReaction = wallet != null ? service.getUserReaction(tokenId, wallet) : null;
-        return new ReactionResponse(likes, dislikes, userReaction);
+        return new ReactionResponse(counts.likes(), counts.dislikes(), userReaction);
     }
 
     @POST
@@ -81,10 +131,9 @@ public class TokenReactionResource {
         }
 
         ReactionType newReaction = service.toggleReaction(tokenId, wallet, ReactionType.LIKE);
-        long likes = service.countLikes(tokenId);
-        long dislikes = service.countDislikes(tokenId);
+        ReactionCounts counts = service.counts(tokenId);
 
-        return new ReactionResponse(likes, dislikes, newReaction);
+        return new ReactionResponse(counts.likes(), counts.dislikes(), newReaction);
     }
 
     @POST
@@ -96,9 +145,8 @@ public class TokenReactionResource {
         }
 
         ReactionType newReaction = service.toggleReaction(tokenId, wallet, ReactionType.DISLIKE);
-        long likes = service.countLikes(tokenId);
-        long dislikes = service.countDislikes(tokenId);
+        ReactionCounts counts = service.counts(tokenId);
 
-        return new ReactionResponse(likes, dislikes, newReaction);
+        return new ReactionResponse(counts.likes(), counts.dislikes(), newReaction);
     }
 }
@@ -3,15 +3,17 @@ package com.primos.resource;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import com.primos.model.TrenchContract;
-import com.primos.model.TrenchContractCaller;
-import com.primos.model.TrenchUser;
 import com.primos.model.User;
 import com.primos.service.PrimoTokensService;
+import com.primos.service.TrenchFeed;
 import com.primos.service.TrenchService;
 
+import io.smallrye.common.annotation.Blocking;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.Consumes;
@@ -22,7 +24,12 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 
 @Path("/api/trench")
 @Produces(MediaType.APPLICATION_JSON)
@@ -34,6 +41,9 @@ public class TrenchResource {
     @Inject
     PrimoTokensService primoTokensService;
 
+    @Inject
+    TrenchFeed feed;
+
     public static class TrenchUserInfo {
         public String publicKey;
         public String pfp;
@@ -77,41 +87,14 @@ public class TrenchResource {
     }
 
     @GET
-    public TrenchData get() {
-        TrenchData data = new TrenchData();
-        data.contracts = service.getContracts();
-        List<TrenchUser> users = service.getUsers();
-        data.users = users.stream().map(u -> {
-            TrenchUserInfo info = new TrenchUserInfo();
-            info.publicKey = u.getPublicKey();
-            info.count = u.getCount();
-            User user = User.find("publicKey", u.getPublicKey()).firstResult();
-            info.pfp = user != null ? user.getPfp() : "";
-            info.socials = user != null ? user.getSocials() : new User.SocialLinks();
-            info.contracts = u.getContracts();
-            info.lastSubmittedAt = u.getLastSubmittedAt();
-            return info;
-        }).collect(Collectors.toList());
-
-        // Get latest callers for each contract
-        data.latestCallers = new HashMap<>();
-        for (TrenchContract contract : data.contracts) {
-            List<TrenchContractCaller> callers = service.getLatestCallersForContract(contract.getContract(), 4);
-            List<TrenchCallerInfo> callerInfos = callers.stream().map(caller -> {
-                TrenchCallerInfo info = new TrenchCallerInfo();
-                info.caller = caller.getCaller();
-                info.calledAt = caller.getCalledAt();
-                info.marketCapAtCall = caller.getMarketCapAtCall();
-                info.domainAtCall = caller.getDomainAtCall();
-                User user = User.find("publicKey", caller.getCaller()).firstResult();
-                info.pfp = user != null ? user.getPfp() : "";
-                info.socials = user != null ? user.getSocials() : new User.SocialLinks();
-                return info;
-            }).collect(Collectors.toList());
-            data.latestCallers.put(contract.getContract(), callerInfos);
+    public Response get(@Context Request request) {
+        TrenchFeed.Snapshot snapshot = feed.current();
+        EntityTag tag = new EntityTag(snapshot.etag());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.header(HttpHeaders.CACHE_CONTROL, "no-cache").build();
         }
-
-        return data;
+        return Response.ok(snapshot.json()).tag(tag).header(HttpHeaders.CACHE_CONTROL, "no-cache").build();
     }
 
     @PUT
@@ -152,39 +135,55 @@ public class TrenchResource {
     @POST
     @Path("/contracts/{contract}/update-missing-market-caps")
     @Produces(MediaType.APPLICATION_JSON)
-    public Map<String, Object> updateMissingMarketCaps(@PathParam("contract") String contract) {
-        Map<String, Object> response = new HashMap<>();
-
+    @Blocking
+    public CompletionStage<Map<String, Object>> updateMissingMarketCaps(@PathParam("contract") String contract) {
+        CompletionStage<Integer> update;
         try {
-            int updatedCount = service.updateMissingMarketCapsForCallers(contract);
-            response.put("success", true);
-            response.put("message", "Updated market cap for " + updatedCount + " caller records");
-            response.put("updatedCount", updatedCount);
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error updating market caps: " + e.getMessage());
-            response.put("updatedCount", 0);
+            update = service.updateMissingMarketCapsForCallers(contract);
+        } catch (RuntimeException e) {
+            update = CompletableFuture.failedFuture(e);
         }
-
-        return response;
+        return update.handle((updatedCount, error) -> {
+            Map<String, Object> response = new HashMap<>();
+            if (error == null) {
+                response.put("success", true);
+                response.put("message", "Updated market cap for " + updatedCount + " caller records");
+                response.put("updatedCount", updatedCount);
+            } else {
+                response.put("success", false);
+                response.put("message", "Error updating market caps: " + causeOf(error).getMessage());
+                response.put("updatedCount", 0);
+            }
+            return response;
+        });
     }
 
     @POST
     @Path("/backfill-market-caps")
     @Produces(MediaType.APPLICATION_JSON)
-    public Map<String, Object> backfillMissingMarketCaps() {
-        Map<String, Object> response = new HashMap<>();
-
+    @Blocking
+    public CompletionStage<Map<String, Object>> backfillMissingMarketCaps() {
+        CompletionStage<Void> backfill;
         try {
-            service.backfillMissingMarketCaps();
-            response.put("success", true);
-            response.put("message", "Market cap backfill process completed successfully");
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error during market cap backfill: " + e.getMessage());
+            backfill = service.backfillMissingMarketCaps();
+        } catch (RuntimeException e) {
+            backfill = CompletableFuture.failedFuture(e);
         }
+        return backfill.handle((done, error) -> {
+            Map<String, Object> response = new HashMap<>();
+            if (error == null) {
+                response.put("success", true);
+                response.put("message", "Market cap backfill process completed successfully");
+            } else {
+                response.put("success", false);
+                response.put("message", "Error during market cap backfill: " + causeOf(error).getMessage());
+            }
+            return response;
+        });
+    }
 
-        return response;
+    private static Throwable causeOf(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     /**
@@ -192,23 +191,16 @@ public class TrenchResource {
      * This endpoint is publicly accessible and fetches all tokens held by Primo
      * community members
      * from the database, then automatically adds popular tokens to the Trenches for
-     * community tracking.
+     * community tracking. Discovery runs in the background, so the response is
+     * 202 Accepted.
      */
     @POST
     @Path("/discover-primo-tokens")
     @Produces(MediaType.APPLICATION_JSON)
-    public Map<String, Object> discoverPrimoTokens() {
+    public Response discoverPrimoTokens() {
         Map<String, Object> response = new HashMap<>();
-
-        try {
-            String result = primoTokensService.discoverAndAddPrimoTokens();
-            response.put("success", true);
-            response.put("message", result);
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error during token discovery: " + e.getMessage());
-        }
-
-        return response;
+        response.put("success", true);
+        response.put("message", primoTokensService.discoverAndAddPrimoTokens());
+        return Response.accepted(response).build();
     }
 }
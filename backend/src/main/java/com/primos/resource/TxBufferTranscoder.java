@@ -0,0 +1,117 @@
+package com.primos.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Rewrites the serialized Node.js buffers in Magic Eden instruction responses,
+ * {@code {"type":"Buffer","data":[1,2,...]}}, to {@code {"data":"<base64>"}}.
+ * Only {@code txSigned} and {@code txUnsigned} at the top level and inside
+ * {@code v0} are touched; everything else is copied token by token.
+ * <p>
+ * This is a single streaming pass from parser to generator: no tree is built
+ * and the byte values go straight from the parser into one array.
+ */
+final class TxBufferTranscoder {
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final Set<String> BUFFER_FIELDS = Set.of("txSigned", "txUnsigned");
+
+    private TxBufferTranscoder() {
+    }
+
+    static byte[] transcode(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser p = FACTORY.createParser(json); JsonGenerator g = FACTORY.createGenerator(out)) {
+            JsonToken token = p.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                g.writeStartObject();
+                copyObject(p, g, true);
+            } else if (token != null) {
+                g.copyCurrentStructure(p);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // The parser is on START_OBJECT, already written; copies through END_OBJECT
+    private static void copyObject(JsonParser p, JsonGenerator g, boolean topLevel) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken value = p.nextToken();
+            g.writeFieldName(name);
+            if (value == JsonToken.START_OBJECT && BUFFER_FIELDS.contains(name)) {
+                g.writeStartObject();
+                copyBuffer(p, g);
+            } else if (value == JsonToken.START_OBJECT && topLevel && "v0".equals(name)) {
+                g.writeStartObject();
+                copyObject(p, g, false);
+            } else {
+                g.copyCurrentStructure(p);
+            }
+        }
+        g.writeEndObject();
+    }
+
+    private static void copyBuffer(JsonParser p, JsonGenerator g) throws IOException {
+        String type = null;
+        boolean encoded = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken value = p.nextToken();
+            if ("type".equals(name) && value == JsonToken.VALUE_STRING) {
+                // Dropped once the data is encoded, kept otherwise
+                type = p.getText();
+            } else if ("data".equals(name) && value == JsonToken.START_ARRAY) {
+                g.writeStringField("data", Base64.getEncoder().encodeToString(readBytes(p)));
+                encoded = true;
+            } else {
+                g.writeFieldName(name);
+                g.copyCurrentStructure(p);
+            }
+        }
+        if (!encoded && type != null) {
+            g.writeStringField("type", type);
+        }
+        g.writeEndObject();
+    }
+
+    private static byte[] readBytes(JsonParser p) throws IOException {
+        byte[] bytes = new byte[1024];
+        int size = 0;
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) intValue(p, token);
+        }
+        return Arrays.copyOf(bytes, size);
+    }
+
+    // Mirrors JsonNode.asInt for the values a buffer could plausibly hold
+    private static int intValue(JsonParser p, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return p.getValueAsInt();
+            case VALUE_STRING:
+                return p.getValueAsInt(0);
+            case VALUE_TRUE:
+                return 1;
+            case START_OBJECT:
+            case START_ARRAY:
+                p.skipChildren();
+                return 0;
+            default:
+                return 0;
+        }
+    }
+}
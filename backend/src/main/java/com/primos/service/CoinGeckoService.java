@@ -1,116 +1,226 @@
 package com.primos.service;
 
 import java.io.StringReader;
-import java.net.URI;
-import java.net.http.HttpClient;
+import java.net.URLEncoder;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import com.primos.config.Env;
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.RetryPolicy;
+import com.primos.http.Upstream;
+
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.json.Json;
+import jakarta.json.JsonNumber;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
 
+/**
+ * Market cap lookups against CoinGecko's {@code simple/token_price} endpoint.
+ * <p>
+ * Lookups are not sent one by one: requests arriving within
+ * {@link #BATCH_WINDOW_MS} are coalesced per platform (ethereum vs solana) into
+ * a single call with comma-separated {@code contract_addresses}, split into
+ * chunks of {@code COINGECKO_MAX_BATCH_SIZE}, and the results are fanned back
+ * out to each waiting caller. Failed requests are retried asynchronously with
+ * backoff by {@link OutboundHttpClient#sendAsync}, so no thread sleeps while
+ * CoinGecko recovers. Results are kept in a {@link TtlCache} keyed by
+ * platform and contract, so hot contracts and concurrent misses cost at most
+ * one upstream lookup per TTL, and failed lookups are negatively cached
+ * briefly.
+ */
 @ApplicationScoped
 public class CoinGeckoService {
     private static final Logger LOG = Logger.getLogger(CoinGeckoService.class.getName());
     private static final String BASE_URL = "https://api.coingecko.com/api/v3";
-    private static final HttpClient CLIENT = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
-    private static final int MAX_RETRIES = 5;
-    private static final long RETRY_DELAY_MS = 1_000;
+    private static final RetryPolicy RETRY = RetryPolicy.of(5, Duration.ofSeconds(1), Duration.ofSeconds(30));
+    static final long BATCH_WINDOW_MS = 50;
+    private static final int MAX_BATCH_SIZE = Env.positiveInt("COINGECKO_MAX_BATCH_SIZE", 30);
+    private static final long CACHE_TTL_MS =
+            TimeUnit.SECONDS.toMillis(Env.positiveInt("COINGECKO_MARKET_CAP_TTL_SECONDS", 60));
+    private static final long NEGATIVE_TTL_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final int CACHE_MAX_ENTRIES = 5_000;
+
+    @Inject
+    OutboundHttpClient http;
+
+    private final TtlCache<String, Double> marketCaps = new TtlCache<>(CACHE_TTL_MS, NEGATIVE_TTL_MS,
+            CACHE_MAX_ENTRIES);
+    // platform -> contract -> waiting callers; guarded by itself
+    private final Map<String, Map<String, CompletableFuture<Double>>> queued = new HashMap<>();
+    private final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "coingecko-batch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PreDestroy
+    void shutdown() {
+        batchTimer.shutdownNow();
+    }
 
     /**
-     * Fetch current USD market cap for a token using CoinGecko's simple token price
-     * API.
-     * 
-     * @param contract Token contract address
-     * @return Market cap in USD, or null if unavailable
+     * Fetches the market caps of many contracts, sharing as few upstream
+     * requests as possible, and waits for them. Only for background work;
+     * request handlers use {@link #fetchMarketCapsAsync}.
+     *
+     * @return market cap per contract; contracts without data are absent
      */
-    public Double fetchMarketCap(String contract) {
-        LOG.log(java.util.logging.Level.INFO, "Starting market cap fetch for contract: {0}", contract);
-
-        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
-            LOG.log(java.util.logging.Level.INFO, "Market cap fetch attempt {0}/{1} for contract: {2}",
-                    new Object[] { attempt + 1, MAX_RETRIES, contract });
-
-            Double marketCap = fetchMarketCapOnce(contract);
-            if (marketCap != null) {
-                LOG.log(java.util.logging.Level.INFO,
-                        "Successfully fetched market cap on attempt {0}: {1} for contract: {2}",
-                        new Object[] { attempt + 1, marketCap, contract });
-                return marketCap;
-            }
+    public Map<String, Double> fetchMarketCaps(Collection<String> contracts) {
+        return fetchMarketCapsAsync(contracts).join();
+    }
+
+    /**
+     * Fetches the market caps of many contracts without blocking the caller.
+     *
+     * @return market cap per contract; contracts without data are absent
+     */
+    public CompletableFuture<Map<String, Double>> fetchMarketCapsAsync(Collection<String> contracts) {
+        Map<String, CompletableFuture<Double>> futures = new LinkedHashMap<>();
+        contracts.forEach(contract -> futures.computeIfAbsent(contract, this::fetchMarketCapAsync));
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).thenApply(done -> {
+            Map<String, Double> marketCaps = new HashMap<>();
+            futures.forEach((contract, future) -> {
+                Double marketCap = future.join();
+                if (marketCap != null) {
+                    marketCaps.put(contract, marketCap);
+                }
+            });
+            return marketCaps;
+        });
+    }
+
+    /**
+     * Returns the cached market cap, or queues a lookup for the next batch of
+     * the contract's platform. Concurrent lookups of the same contract share
+     * one future.
+     */
+    public CompletableFuture<Double> fetchMarketCapAsync(String contract) {
+        String platform = platformOf(contract);
+        String key = platform + ":" + ("ethereum".equals(platform) ? contract.toLowerCase() : contract);
+        return marketCaps.get(key, k -> enqueue(platform, contract));
+    }
+
+    /**
+     * Hit/miss counters of the market cap cache.
+     */
+    public TtlCache.Stats marketCapCacheStats() {
+        return marketCaps.stats();
+    }
 
-            if (attempt < MAX_RETRIES - 1) {
-                LOG.log(java.util.logging.Level.INFO, "Market cap fetch failed, retrying in {0}ms...", RETRY_DELAY_MS);
-                try {
-                    Thread.sleep(RETRY_DELAY_MS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    LOG.log(java.util.logging.Level.WARNING, "Market cap fetch interrupted for contract: {0}",
-                            contract);
-                    break;
+    private CompletableFuture<Double> enqueue(String platform, String contract) {
+        synchronized (queued) {
+            Map<String, CompletableFuture<Double>> batch = queued.computeIfAbsent(platform,
+                    k -> new LinkedHashMap<>());
+            CompletableFuture<Double> future = batch.get(contract);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                batch.put(contract, future);
+                if (batch.size() == 1) {
+                    batchTimer.schedule(() -> flush(platform), BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
                 }
             }
+            return future;
         }
+    }
 
-        LOG.log(java.util.logging.Level.WARNING, "Failed to fetch market cap after {0} attempts for contract: {1}",
-                new Object[] { MAX_RETRIES, contract });
-        return null;
+    static String platformOf(String contract) {
+        // Determine platform based on contract format
+        return contract.startsWith("0x") ? "ethereum" : "solana";
+    }
+
+    private void flush(String platform) {
+        Map<String, CompletableFuture<Double>> batch;
+        synchronized (queued) {
+            batch = queued.remove(platform);
+        }
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        List<String> contracts = new ArrayList<>(batch.keySet());
+        for (int i = 0; i < contracts.size(); i += MAX_BATCH_SIZE) {
+            List<String> chunk = contracts.subList(i, Math.min(i + MAX_BATCH_SIZE, contracts.size()));
+            CompletableFuture<Map<String, Double>> request;
+            try {
+                request = requestMarketCaps(platform, chunk);
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            request.exceptionally(e -> {
+                LOG.log(java.util.logging.Level.WARNING, "Failed to fetch market caps for {0} contracts: {1}",
+                        new Object[] { chunk.size(), e.getMessage() });
+                return Map.of();
+            }).thenAccept(results -> {
+                for (String contract : chunk) {
+                    batch.get(contract).complete(results.get(contract));
+                }
+            });
+        }
     }
 
     /**
-     * Perform a single HTTP request to CoinGecko for the given contract.
+     * Requests the market caps of the given contracts of one platform,
+     * retrying failures in the background.
+     *
+     * @return market cap per requested contract (contracts without data are
+     *         absent); empty if CoinGecko kept answering with an error status
      */
-    protected Double fetchMarketCapOnce(String contract) {
-        // Determine platform based on contract format
-        String platform = contract.startsWith("0x") ? "ethereum" : "solana";
-        String url = BASE_URL + "/simple/token_price/" + platform + "?contract_addresses=" + contract
+    protected CompletableFuture<Map<String, Double>> requestMarketCaps(String platform, List<String> contracts) {
+        String addresses = URLEncoder.encode(String.join(",", contracts), StandardCharsets.UTF_8);
+        String url = BASE_URL + "/simple/token_price/" + platform + "?contract_addresses=" + addresses
                 + "&vs_currencies=usd&include_market_cap=true";
 
-        LOG.log(java.util.logging.Level.INFO, "Fetching market cap for contract: {0} on platform: {1}",
-                new Object[] { contract, platform });
-
-        try {
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Accept", "application/json")
-                    .timeout(Duration.ofSeconds(30))
-                    .GET()
-                    .build();
-            HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
-
-            LOG.log(java.util.logging.Level.INFO, "CoinGecko response status: {0}, body: {1}",
-                    new Object[] { resp.statusCode(), resp.body() });
-
-            if (resp.statusCode() != 200) {
-                LOG.log(java.util.logging.Level.WARNING, "CoinGecko HTTP status {0} for contract {1}",
-                        new Object[] { resp.statusCode(), contract });
-                return null;
-            }
-            try (JsonReader reader = Json.createReader(new StringReader(resp.body()))) {
-                JsonObject obj = reader.readObject();
+        LOG.log(java.util.logging.Level.INFO, "Fetching market caps for {0} contracts on platform: {1}",
+                new Object[] { contracts.size(), platform });
+
+        HttpRequest req = http.request(Upstream.COINGECKO, url)
+                .header("Accept", "application/json")
+                .build();
+        return http.sendAsync(Upstream.COINGECKO, req, HttpResponse.BodyHandlers.ofString(), RETRY)
+                .thenApply(resp -> {
+                    if (resp.statusCode() != 200) {
+                        LOG.log(java.util.logging.Level.WARNING, "CoinGecko HTTP status {0} for {1} contracts",
+                                new Object[] { resp.statusCode(), contracts.size() });
+                        return Map.of();
+                    }
+                    return parseMarketCaps(resp.body(), contracts);
+                });
+    }
+
+    static Map<String, Double> parseMarketCaps(String body, List<String> contracts) {
+        Map<String, Double> marketCaps = new HashMap<>();
+        try (JsonReader reader = Json.createReader(new StringReader(body))) {
+            JsonObject obj = reader.readObject();
+            for (String contract : contracts) {
                 JsonObject token = obj.getJsonObject(contract.toLowerCase());
                 if (token == null) {
                     token = obj.getJsonObject(contract);
                 }
-                if (token != null && token.containsKey("usd_market_cap")) {
-                    Double marketCap = token.getJsonNumber("usd_market_cap").doubleValue();
-                    LOG.log(java.util.logging.Level.INFO, "Successfully fetched market cap: {0} for contract: {1}",
-                            new Object[] { marketCap, contract });
-                    return marketCap;
+                JsonValue marketCap = token != null ? token.get("usd_market_cap") : null;
+                if (marketCap instanceof JsonNumber number) {
+                    marketCaps.put(contract, number.doubleValue());
                 } else {
                     LOG.log(java.util.logging.Level.WARNING, "No market cap data found for contract: {0}", contract);
                 }
             }
-        } catch (Exception e) {
-            LOG.log(java.util.logging.Level.WARNING, "Error fetching CoinGecko market cap for contract {0}: {1}",
-                    new Object[] { contract, e.getMessage() });
         }
-        return null;
+        return marketCaps;
     }
 }
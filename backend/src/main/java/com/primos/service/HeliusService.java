@@ -1,10 +1,8 @@
 package com.primos.service;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.StringReader;
-import java.net.InetSocketAddress;
-import java.net.ProxySelector;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -12,11 +10,17 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.RetryPolicy;
+import com.primos.http.Upstream;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
@@ -28,24 +32,16 @@ public class HeliusService {
     private static final String API_KEY = System.getenv("REACT_APP_HELIUS_API_KEY");
     private static final String MORALIS_API_KEY = System.getenv("MORALIS_API_KEY");
     private static final String COLLECTION = System.getenv().getOrDefault("REACT_APP_PRIMOS_COLLECTION", "primos");
-    private static final HttpClient CLIENT = createClient();
-
-    private static HttpClient createClient() {
-        String proxy = System.getenv("https_proxy");
-        if (proxy == null || proxy.isEmpty()) {
-            proxy = System.getenv("HTTPS_PROXY");
-        }
-        if (proxy != null && !proxy.isEmpty()) {
-            try {
-                URI uri = URI.create(proxy);
-                return HttpClient.newBuilder()
-                        .proxy(ProxySelector.of(new InetSocketAddress(uri.getHost(), uri.getPort())))
-                        .build();
-            } catch (Exception ignored) {
-            }
-        }
-        return HttpClient.newHttpClient();
-    }
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final RetryPolicy RETRY = RetryPolicy.of(3, Duration.ofMillis(500), Duration.ofSeconds(10));
+    // searchAssets is a JSON-RPC POST that only reads
+    private static final RetryPolicy RPC_RETRY = RETRY.assumingIdempotent();
+
+    @Inject
+    OutboundHttpClient http;
+
+    @Inject
+    JupiterTokenIndex jupiterTokenIndex;
 
     /**
      * Retrieves the number of NFTs from the Primos collection owned by the given
@@ -68,12 +64,11 @@ public class HeliusService {
                 String body = String.format(
                         "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"searchAssets\",\"params\":{\"ownerAddress\":\"%s\",\"grouping\":[\"collection\",\"%s\"],\"tokenType\":\"regularNft\",\"page\":%d,\"limit\":%d}}",
                         wallet, COLLECTION, page, limit);
-                HttpRequest req = HttpRequest.newBuilder()
-                        .uri(URI.create("https://mainnet.helius-rpc.com/?api-key=" + API_KEY))
+                HttpRequest req = http.request(Upstream.HELIUS, "https://mainnet.helius-rpc.com/?api-key=" + API_KEY)
                         .header("Content-Type", "application/json")
                         .POST(HttpRequest.BodyPublishers.ofString(body))
                         .build();
-                HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> resp = send(Upstream.HELIUS, req, RPC_RETRY);
                 if (resp.statusCode() != 200) {
                     break;
                 }
@@ -101,6 +96,30 @@ public class HeliusService {
         }
     }
 
+    /**
+     * Sends a request through the shared retry engine and waits for the final
+     * response. Everything in this service runs off the request path (login
+     * refreshes, jobs, snapshot rebuilds). The wait is interruptible: an
+     * interrupted caller cancels the call, including any retries still
+     * scheduled, and gets an {@link InterruptedIOException}.
+     */
+    private HttpResponse<String> send(Upstream upstream, HttpRequest req, RetryPolicy policy) throws IOException {
+        CompletableFuture<HttpResponse<String>> call = http.sendAsync(upstream, req,
+                HttpResponse.BodyHandlers.ofString(), policy);
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(upstream + " request interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     /**
      * Retrieves all wallet addresses holding NFTs from the Primos collection.
      *
@@ -115,11 +134,8 @@ public class HeliusService {
                 String url = String.format(
                         "https://api-mainnet.magiceden.dev/v2/collections/%s/holders?offset=%d&limit=%d",
                         COLLECTION, offset, limit);
-                HttpRequest req = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .GET()
-                        .build();
-                HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
+                HttpRequest req = http.request(Upstream.MAGIC_EDEN, url).build();
+                HttpResponse<String> resp = send(Upstream.MAGIC_EDEN, req, RETRY);
                 if (resp.statusCode() != 200) {
                     break;
                 }
@@ -167,9 +183,9 @@ public class HeliusService {
         try {
             String url = String.format("https://api.helius.xyz/v0/addresses/%s/tokens?api-key=%s", walletAddress,
                     API_KEY);
-            HttpRequest req = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
+            HttpRequest req = http.request(Upstream.HELIUS, url).build();
 
-            HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> resp = send(Upstream.HELIUS, req, RETRY);
 
             if (resp.statusCode() != 200) {
                 LOG.warning("Failed to fetch tokens for wallet " + walletAddress + ": HTTP " + resp.statusCode());
@@ -226,8 +242,8 @@ public class HeliusService {
             // Get wallet balances from Helius
             String balanceUrl = String.format("https://api.helius.xyz/v0/addresses/%s/balances?api-key=%s",
                     walletAddress, API_KEY);
-            HttpRequest balanceReq = HttpRequest.newBuilder().uri(URI.create(balanceUrl)).GET().build();
-            HttpResponse<String> balanceResp = CLIENT.send(balanceReq, HttpResponse.BodyHandlers.ofString());
+            HttpRequest balanceReq = http.request(Upstream.HELIUS, balanceUrl).build();
+            HttpResponse<String> balanceResp = send(Upstream.HELIUS, balanceReq, RETRY);
 
             if (balanceResp.statusCode() != 200) {
                 LOG.warning(
@@ -352,45 +368,22 @@ public class HeliusService {
     }
 
     /**
-     * Gets token information from Jupiter API.
+     * Gets token information from the locally indexed Jupiter strict list.
      */
     private Map<String, Object> getJupiterTokenInfo(String mint) {
-        try {
-            String jupiterUrl = "https://token.jup.ag/strict";
-            HttpRequest jupiterReq = HttpRequest.newBuilder().uri(URI.create(jupiterUrl)).GET().build();
-            HttpResponse<String> jupiterResp = CLIENT.send(jupiterReq, HttpResponse.BodyHandlers.ofString());
-
-            if (jupiterResp.statusCode() == 200) {
-                try (JsonReader reader = Json.createReader(new StringReader(jupiterResp.body()))) {
-                    JsonArray tokens = reader.readArray();
-
-                    for (int i = 0; i < tokens.size(); i++) {
-                        JsonObject token = tokens.getJsonObject(i);
-                        if (mint.equals(token.getString("address", ""))) {
-                            Map<String, Object> tokenInfo = new HashMap<>();
-                            tokenInfo.put("symbol", token.getString("symbol", ""));
-                            tokenInfo.put("name", token.getString("name", ""));
-                            tokenInfo.put("logoURI", token.getString("logoURI", ""));
-                            tokenInfo.put("verified", true);
-
-                            // Check for extensions (like CoinGecko ID)
-                            if (token.containsKey("extensions")) {
-                                JsonObject extensions = token.getJsonObject("extensions");
-                                if (extensions.containsKey("coingeckoId")) {
-                                    tokenInfo.put("coingeckoId", extensions.getString("coingeckoId"));
-                                }
-                            }
-
-                            return tokenInfo;
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            LOG.warning("Failed to fetch Jupiter token info for " + mint + ": " + e.getMessage());
+        JupiterTokenIndex.JupiterToken token = jupiterTokenIndex.lookup(mint);
+        if (token == null) {
+            return null;
         }
-
-        return null;
+        Map<String, Object> tokenInfo = new HashMap<>();
+        tokenInfo.put("symbol", token.symbol());
+        tokenInfo.put("name", token.name());
+        tokenInfo.put("logoURI", token.logoURI());
+        tokenInfo.put("verified", true);
+        if (token.coingeckoId() != null) {
+            tokenInfo.put("coingeckoId", token.coingeckoId());
+        }
+        return tokenInfo;
     }
 
     /**
@@ -407,8 +400,8 @@ public class HeliusService {
                     "https://api.coingecko.com/api/v3/simple/price?ids=%s&vs_currencies=usd&include_market_cap=true&include_24hr_vol=true&include_24hr_change=true",
                     coingeckoId);
 
-            HttpRequest geckoReq = HttpRequest.newBuilder().uri(URI.create(geckoUrl)).GET().build();
-            HttpResponse<String> geckoResp = CLIENT.send(geckoReq, HttpResponse.BodyHandlers.ofString());
+            HttpRequest geckoReq = http.request(Upstream.COINGECKO, geckoUrl).build();
+            HttpResponse<String> geckoResp = send(Upstream.COINGECKO, geckoReq, RETRY);
 
             if (geckoResp.statusCode() == 200) {
                 try (JsonReader reader = Json.createReader(new StringReader(geckoResp.body()))) {
@@ -939,19 +932,15 @@ public class HeliusService {
             // Moralis Solana API endpoint for token metadata
             String url = "https://solana-gateway.moralis.io/token/metadata?network=mainnet&address=" + mint;
 
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
+            HttpRequest request = http.request(Upstream.MORALIS, url)
                     .header("Accept", "application/json")
                     .header("X-API-Key", MORALIS_API_KEY)
-                    .timeout(Duration.ofSeconds(10))
                     .build();
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = send(Upstream.MORALIS, request, RETRY);
 
             if (response.statusCode() == 200) {
-                ObjectMapper mapper = new ObjectMapper();
-                Map<String, Object> moralisData = mapper.readValue(response.body(), Map.class);
+                Map<String, Object> moralisData = MAPPER.readValue(response.body(), Map.class);
 
                 // Extract useful data from Moralis
                 if (moralisData.containsKey("name") && !tokenData.containsKey("name")) {
@@ -987,19 +976,15 @@ public class HeliusService {
             // Moralis Solana API endpoint for token price
             String url = "https://solana-gateway.moralis.io/token/price?network=mainnet&address=" + mint;
 
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
+            HttpRequest request = http.request(Upstream.MORALIS, url)
                     .header("Accept", "application/json")
                     .header("X-API-Key", MORALIS_API_KEY)
-                    .timeout(Duration.ofSeconds(10))
                     .build();
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = send(Upstream.MORALIS, request, RETRY);
 
             if (response.statusCode() == 200) {
-                ObjectMapper mapper = new ObjectMapper();
-                Map<String, Object> priceData = mapper.readValue(response.body(), Map.class);
+                Map<String, Object> priceData = MAPPER.readValue(response.body(), Map.class);
 
                 // Add price data if not already present
                 if (priceData.containsKey("usdPrice") && !tokenData.containsKey("price")) {
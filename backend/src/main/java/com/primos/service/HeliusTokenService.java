@@ -1,19 +1,21 @@
 package com.primos.service;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
 import java.io.StringReader;
-import java.net.InetSocketAddress;
-import java.net.ProxySelector;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.RetryPolicy;
+import com.primos.http.Upstream;
 import com.primos.model.TelegramData;
 
 @ApplicationScoped
@@ -21,37 +23,44 @@ public class HeliusTokenService {
     private static final Logger LOG = Logger.getLogger(HeliusTokenService.class.getName());
     private static final String API_BASE = System.getenv().getOrDefault("HELIUS_API_BASE", "https://api.helius.xyz");
     private static final String API_KEY = System.getenv("HELIUS_API_KEY");
-    private static final HttpClient CLIENT = createClient();
+    // token-metadata is a POST but only reads
+    private static final RetryPolicy RETRY = RetryPolicy.of(3, Duration.ofMillis(250), Duration.ofSeconds(5))
+            .assumingIdempotent();
 
-    private static HttpClient createClient() {
-        String proxy = System.getenv("https_proxy");
-        if (proxy == null || proxy.isEmpty()) {
-            proxy = System.getenv("HTTPS_PROXY");
-        }
-        if (proxy != null && !proxy.isEmpty()) {
-            try {
-                URI uri = URI.create(proxy);
-                return HttpClient.newBuilder()
-                        .proxy(ProxySelector.of(new InetSocketAddress(uri.getHost(), uri.getPort())))
-                        .build();
-            } catch (Exception ignored) {}
-        }
-        return HttpClient.newHttpClient();
-    }
+    @Inject
+    OutboundHttpClient http;
 
-    public TelegramData fetchTokenData(String contract) {
+    /**
+     * Fetches token metrics from Helius without blocking the caller.
+     *
+     * @return the token data, or null if unavailable
+     */
+    public CompletableFuture<TelegramData> fetchTokenData(String contract) {
         if (API_KEY == null || API_KEY.isEmpty()) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         String url = API_BASE + "/v0/token-metadata?api-key=" + API_KEY;
         String body = "{\"mintAccounts\":[\"" + contract + "\"]}";
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        HttpRequest req = http.request(Upstream.HELIUS, url)
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
+        return http.sendAsync(Upstream.HELIUS, req, HttpResponse.BodyHandlers.ofString(), RETRY)
+                .thenApply(this::parse)
+                .exceptionally(e -> {
+                    LOG.log(java.util.logging.Level.WARNING, "Error fetching Helius data: {0}", e.getMessage());
+                    return null;
+                })
+                .thenApply(data -> {
+                    if (data != null) {
+                        data.setTokenAddress(contract);
+                    }
+                    return data;
+                });
+    }
+
+    private TelegramData parse(HttpResponse<String> resp) {
         try {
-            HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
             if (resp.statusCode() != 200) {
                 LOG.log(java.util.logging.Level.FINE, "Helius HTTP status {0}", resp.statusCode());
                 return null;
@@ -63,7 +72,6 @@ public class HeliusTokenService {
             if (arr.isEmpty()) return null;
             JsonObject token = arr.getJsonObject(0);
             TelegramData data = new TelegramData();
-            data.setTokenAddress(contract);
             if (token.containsKey("price")) {
                 data.setPriceUsd(token.getJsonNumber("price").doubleValue());
             }
@@ -88,13 +96,6 @@ public class HeliusTokenService {
                 data.setBuys24h(token.getInt("buyCount24h"));
             }
             return data;
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            LOG.log(java.util.logging.Level.WARNING, "Helius fetch interrupted: {0}", ie.getMessage());
-            return null;
-        } catch (java.io.IOException ioe) {
-            LOG.log(java.util.logging.Level.WARNING, "IO error fetching Helius data: {0}", ioe.getMessage());
-            return null;
         } catch (Exception e) {
             LOG.log(java.util.logging.Level.WARNING, "Error parsing Helius response: {0}", e.getMessage());
             return null;
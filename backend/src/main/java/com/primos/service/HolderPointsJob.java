@@ -1,10 +1,27 @@
 package com.primos.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.logging.Logger;
 
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWrapper;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import com.primos.config.Env;
+import com.primos.model.JobRun;
 import com.primos.model.User;
 
 import io.quarkus.scheduler.Scheduled;
@@ -14,12 +31,16 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class HolderPointsJob {
     private static final Logger LOG = Logger.getLogger(HolderPointsJob.class.getName());
+    static final String JOB_NAME = "holderPoints";
+    private static final int BATCH_SIZE = Env.positiveInt("HOLDER_POINTS_BATCH_SIZE", 1000);
 
     private final HeliusService heliusService;
+    private final StatsAggregator stats;
 
     @Inject
-    public HolderPointsJob(HeliusService heliusService) {
+    public HolderPointsJob(HeliusService heliusService, StatsAggregator stats) {
         this.heliusService = heliusService;
+        this.stats = stats;
     }
 
     @Scheduled(cron = "0 0 20 * * ?", timeZone = "America/New_York")
@@ -27,69 +48,130 @@ public class HolderPointsJob {
         awardHolderPointsToAllUsers();
     }
 
+    /**
+     * Awards the daily holder points with a few bulk writes: missing holders are
+     * upserted, holders sharing an NFT count are updated together with
+     * {@code $set}/{@code $inc}, and everyone else is demoted in one
+     * {@code updateMany}. A {@link JobRun} marker makes the award run once per
+     * day, and each holder update only matches users not yet awarded today so
+     * a rerun after a partial failure never double counts.
+     */
     public void awardHolderPointsToAllUsers() {
         String today = LocalDate.now().toString();
+        if (JobRun.completed(JOB_NAME, today)) {
+            LOG.info("Holder points already awarded today, skipping");
+            return;
+        }
+
+        long started = System.currentTimeMillis();
         Map<String, Integer> holderMap = heliusService.getPrimoHolders();
+        if (holderMap.isEmpty()) {
+            LOG.warning("No Primo holders returned, skipping holder points award");
+            return;
+        }
+        LOG.info(String.format("Starting holder points award process for %d holders", holderMap.size()));
+
+        MongoCollection<User> users = User.mongoCollection();
+        Map<Integer, List<String>> byCount = groupByCount(holderMap);
+        List<String> holders = byCount.values().stream().flatMap(List::stream).toList();
 
         // Ensure all holders exist in the database
-        holderMap.keySet().forEach(address -> {
-            if (User.find("publicKey", address).firstResult() == null) {
-                User newUser = new User();
-                newUser.setPublicKey(address);
-                newUser.setPrimoHolder(true);
-                newUser.setDaoMember(true);
-                newUser.persist();
+        List<WriteModel<User>> upserts = new ArrayList<>(holders.size());
+        for (String address : holders) {
+            upserts.add(new UpdateOneModel<>(Filters.eq("publicKey", address),
+                    new BsonDocument("$setOnInsert", newHolderDocument(users, address)),
+                    new UpdateOptions().upsert(true)));
+        }
+        int created = bulkWrite(users, upserts);
+
+        // Holders with the same NFT count earn the same award, so group them
+        List<WriteModel<User>> awards = new ArrayList<>();
+        for (Map.Entry<Integer, List<String>> group : byCount.entrySet()) {
+            int count = group.getKey();
+            int toAdd = PointCalculator.holderAward(count);
+            Bson update = Updates.combine(
+                    Updates.set("nftCount", count),
+                    Updates.set("primoHolder", true),
+                    Updates.set("daoMember", true),
+                    Updates.set("pointsDate", today),
+                    Updates.set("pointsToday", toAdd),
+                    Updates.set("iconPointsToday", 0),
+                    Updates.set("holderPointsToday", toAdd),
+                    Updates.inc("points", toAdd));
+            for (List<String> chunk : chunks(group.getValue(), BATCH_SIZE)) {
+                awards.add(new UpdateManyModel<>(Filters.and(
+                        Filters.in("publicKey", chunk),
+                        Filters.or(Filters.ne("pointsDate", today), Filters.eq("holderPointsToday", 0))),
+                        update));
             }
-        });
-
-        List<User> users = User.listAll();
+        }
+        int awarded = bulkWrite(users, awards);
+
+        // Reset daily points counts and holder flags for everyone else
+        UpdateResult demoted = users.updateMany(Filters.nin("publicKey", holders), Updates.combine(
+                Updates.set("nftCount", 0),
+                Updates.set("primoHolder", false),
+                Updates.set("daoMember", false),
+                Updates.set("pointsDate", today),
+                Updates.set("pointsToday", 0),
+                Updates.set("iconPointsToday", 0),
+                Updates.set("holderPointsToday", 0)));
+
+        long duration = System.currentTimeMillis() - started;
+        recordRun(today, awarded, duration);
+        stats.reconcile();
+        LOG.info(String.format(
+                "Completed holder points award process: %d holders created, %d awarded, %d non-holders reset in %d ms",
+                created, awarded, demoted.getModifiedCount(), duration));
+    }
 
-        // Check if holder points have already been awarded today
-        boolean alreadyAwarded = users.stream()
-                .anyMatch(user -> today.equals(user.getPointsDate()) && user.getHolderPointsToday() > 0);
+    private static BsonDocument newHolderDocument(MongoCollection<User> users, String address) {
+        User newUser = new User();
+        newUser.setPublicKey(address);
+        newUser.setPrimoHolder(true);
+        newUser.setDaoMember(true);
+        BsonDocument document = BsonDocumentWrapper.asBsonDocument(newUser, users.getCodecRegistry());
+        document.remove("_id");
+        return document;
+    }
 
-        if (alreadyAwarded) {
-            LOG.info("Holder points already awarded today, skipping");
-            return;
+    private static int bulkWrite(MongoCollection<User> users, List<WriteModel<User>> models) {
+        int affected = 0;
+        for (List<WriteModel<User>> chunk : chunks(models, BATCH_SIZE)) {
+            var result = users.bulkWrite(chunk, new BulkWriteOptions().ordered(false));
+            affected += result.getUpserts().size() + result.getModifiedCount();
         }
+        return affected;
+    }
 
-        if (LOG.isLoggable(java.util.logging.Level.INFO)) {
-            LOG.info(String.format("Starting holder points award process for %d users", users.size()));
-        }
+    private static void recordRun(String today, long affected, long durationMillis) {
+        JobRun.mongoCollection().updateOne(
+                Filters.and(Filters.eq("name", JOB_NAME), Filters.eq("runDate", today)),
+                Updates.combine(
+                        Updates.set("affected", affected),
+                        Updates.set("durationMillis", durationMillis),
+                        Updates.set("completedAt", System.currentTimeMillis())),
+                new UpdateOptions().upsert(true));
+    }
 
-        for (User user : users) {
-            try {
-                int count = holderMap.getOrDefault(user.getPublicKey(), 0);
-                boolean isHolder = count > 0;
-                user.setNftCount(count);
-                user.setPrimoHolder(isHolder);
-                user.setDaoMember(isHolder);
-
-                // Reset daily points counts for new day
-                user.setPointsDate(today);
-                user.setPointsToday(0);
-                user.setIconPointsToday(0);
-                user.setHolderPointsToday(0);
-
-                if (isHolder) {
-                    int toAdd = PointCalculator.holderAward(count);
-
-                    user.setPoints(user.getPoints() + toAdd);
-                    user.setPointsToday(toAdd);
-                    user.setHolderPointsToday(toAdd);
-
-                    if (LOG.isLoggable(java.util.logging.Level.INFO)) {
-                        LOG.info(String.format("Awarded %d holder points to user %s (NFT count: %d)",
-                                toAdd, user.getPublicKey(), count));
-                    }
-                }
-
-                user.persistOrUpdate();
-            } catch (Exception e) {
-                LOG.severe(String.format("Failed to award holder points to user %s: %s",
-                        user.getPublicKey(), e.getMessage()));
+    /**
+     * Groups holder addresses by NFT count, dropping wallets that hold none.
+     */
+    static Map<Integer, List<String>> groupByCount(Map<String, Integer> holderMap) {
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        holderMap.forEach((address, count) -> {
+            if (count > 0) {
+                groups.computeIfAbsent(count, k -> new ArrayList<>()).add(address);
             }
+        });
+        return groups;
+    }
+
+    static <T> List<List<T>> chunks(List<T> items, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            chunks.add(items.subList(i, Math.min(i + size, items.size())));
         }
-        LOG.info("Completed holder points award process");
+        return chunks;
     }
 }
@@ -0,0 +1,24 @@
+package com.primos.service;
+
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.primos.model.JobRun;
+import com.primos.model.User;
+
+@Startup
+@ApplicationScoped
+public class JobRunIndexesInitializer {
+
+    @PostConstruct
+    void initIndexes() {
+        JobRun.mongoCollection()
+                .createIndex(Indexes.compoundIndex(Indexes.ascending("name"), Indexes.ascending("runDate")),
+                        new IndexOptions().unique(true));
+        User.mongoCollection()
+                .createIndex(Indexes.ascending("publicKey"));
+    }
+}
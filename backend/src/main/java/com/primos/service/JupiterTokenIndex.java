@@ -0,0 +1,221 @@
+package com.primos.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.Upstream;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * In-memory index of the Jupiter strict token list keyed by mint address.
+ * <p>
+ * The list is several MB, so it is downloaded in the background on a schedule
+ * using conditional requests and swapped in atomically. When
+ * {@code JUPITER_TOKEN_SNAPSHOT} points to a file, the last downloaded list is
+ * kept there so a restart can serve lookups before the first refresh finishes.
+ */
+@ApplicationScoped
+public class JupiterTokenIndex {
+    private static final Logger LOG = Logger.getLogger(JupiterTokenIndex.class.getName());
+    private static final String LIST_URL = System.getenv().getOrDefault("JUPITER_TOKEN_LIST_URL",
+            "https://token.jup.ag/strict");
+    private static final String SNAPSHOT = System.getenv("JUPITER_TOKEN_SNAPSHOT");
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** Token metadata kept per mint; symbol/name/logo only, as used by discovery. */
+    public record JupiterToken(String symbol, String name, String logoURI, String coingeckoId) {
+    }
+
+    @Inject
+    OutboundHttpClient http;
+
+    private volatile Map<String, JupiterToken> tokens = Collections.emptyMap();
+    private volatile String etag;
+    private volatile String lastModified;
+
+    @PostConstruct
+    void loadSnapshot() {
+        if (SNAPSHOT == null || SNAPSHOT.isBlank()) {
+            return;
+        }
+        Path file = Path.of(SNAPSHOT);
+        if (!Files.isReadable(file)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            tokens = parse(in);
+            Path meta = metaFile(file);
+            if (Files.isReadable(meta)) {
+                Properties props = new Properties();
+                try (InputStream metaIn = Files.newInputStream(meta)) {
+                    props.load(metaIn);
+                }
+                etag = props.getProperty("etag");
+                lastModified = props.getProperty("lastModified");
+            }
+            LOG.info(() -> "Loaded " + tokens.size() + " Jupiter tokens from snapshot " + file);
+        } catch (IOException e) {
+            LOG.warning("Failed to load Jupiter token snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the Jupiter metadata for a mint or {@code null} when the mint is
+     * not on the strict list (or the list has not been loaded yet).
+     */
+    public JupiterToken lookup(String mint) {
+        return mint == null ? null : tokens.get(mint);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    @Scheduled(every = "6h", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        try {
+            HttpRequest.Builder builder = http.request(Upstream.JUPITER, LIST_URL)
+                    .header("Accept", "application/json");
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            HttpResponse<byte[]> resp = http.send(Upstream.JUPITER, builder.build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (resp.statusCode() == 304) {
+                LOG.fine("Jupiter token list not modified");
+                return;
+            }
+            if (resp.statusCode() != 200) {
+                LOG.warning("Failed to refresh Jupiter token list: HTTP " + resp.statusCode());
+                return;
+            }
+            byte[] body = resp.body();
+            Map<String, JupiterToken> parsed = parse(new ByteArrayInputStream(body));
+            if (parsed.isEmpty()) {
+                LOG.warning("Jupiter token list was empty, keeping previous index");
+                return;
+            }
+            tokens = parsed;
+            etag = resp.headers().firstValue("ETag").orElse(null);
+            lastModified = resp.headers().firstValue("Last-Modified").orElse(null);
+            writeSnapshot(body);
+            LOG.info(() -> "Refreshed Jupiter token index with " + parsed.size() + " tokens");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warning("Jupiter token list refresh interrupted");
+        } catch (Exception e) {
+            LOG.warning("Failed to refresh Jupiter token list: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the token list and keeps only the fields discovery needs. Repeated
+     * strings (symbols, logo URLs shared by bridged tokens) are de-duplicated so
+     * the index stays compact.
+     */
+    static Map<String, JupiterToken> parse(InputStream in) throws IOException {
+        Map<String, JupiterToken> index = new HashMap<>();
+        Map<String, String> pool = new HashMap<>();
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return index;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String address = null;
+                String symbol = "";
+                String name = "";
+                String logo = "";
+                String coingeckoId = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "address" -> address = parser.getValueAsString();
+                        case "symbol" -> symbol = dedupe(pool, parser.getValueAsString(""));
+                        case "name" -> name = dedupe(pool, parser.getValueAsString(""));
+                        case "logoURI" -> logo = dedupe(pool, parser.getValueAsString(""));
+                        case "extensions" -> coingeckoId = readCoingeckoId(parser, value);
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (address != null && !address.isEmpty()) {
+                    index.put(address, new JupiterToken(symbol, name, logo, coingeckoId));
+                }
+            }
+        }
+        return index;
+    }
+
+    private static String readCoingeckoId(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("coingeckoId".equals(field)) {
+                id = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private static String dedupe(Map<String, String> pool, String value) {
+        String existing = pool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    private void writeSnapshot(byte[] body) {
+        if (SNAPSHOT == null || SNAPSHOT.isBlank()) {
+            return;
+        }
+        try {
+            Path file = Path.of(SNAPSHOT);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, body);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Properties props = new Properties();
+            if (etag != null) {
+                props.setProperty("etag", etag);
+            }
+            if (lastModified != null) {
+                props.setProperty("lastModified", lastModified);
+            }
+            try (var out = Files.newOutputStream(metaFile(file))) {
+                props.store(out, "Jupiter token list validators");
+            }
+        } catch (IOException e) {
+            LOG.warning("Failed to write Jupiter token snapshot: " + e.getMessage());
+        }
+    }
+
+    private static Path metaFile(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + ".meta");
+    }
+}
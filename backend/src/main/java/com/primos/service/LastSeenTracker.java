@@ -0,0 +1,98 @@
+package com.primos.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.primos.model.User;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Coalesces the "last seen" {@code pointsDate} stamp for wallets making API
+ * calls. Requests only touch an in-memory map; wallets seen today are flushed
+ * to MongoDB in batched {@code updateMany} calls, and wallets already stamped
+ * today are never written again.
+ */
+@ApplicationScoped
+public class LastSeenTracker {
+    private static final Logger LOG = Logger.getLogger(LastSeenTracker.class.getName());
+    private static final int BATCH_SIZE = 500;
+    // The header is client supplied, so cap how many unflushed wallets we hold
+    private static final int MAX_PENDING = 100_000;
+
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
+    private final Map<String, String> written = new ConcurrentHashMap<>();
+    private volatile String writtenDay = "";
+
+    public void touch(String walletKey) {
+        touch(walletKey, LocalDate.now().toString());
+    }
+
+    void touch(String walletKey, String today) {
+        if (today.equals(written.get(walletKey)) || pending.size() >= MAX_PENDING) {
+            return;
+        }
+        pending.put(walletKey, today);
+    }
+
+    @Scheduled(every = "15s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flush() {
+        String today = LocalDate.now().toString();
+        List<String> wallets = drain(today);
+        if (wallets.isEmpty()) {
+            return;
+        }
+        long updated = 0;
+        for (int i = 0; i < wallets.size(); i += BATCH_SIZE) {
+            List<String> chunk = wallets.subList(i, Math.min(i + BATCH_SIZE, wallets.size()));
+            try {
+                updated += User.mongoCollection()
+                        .updateMany(Filters.in("publicKey", chunk), Updates.set("pointsDate", today))
+                        .getModifiedCount();
+            } catch (Exception e) {
+                LOG.warning("Failed to flush last-seen dates: " + e.getMessage());
+                chunk.forEach(wallet -> pending.putIfAbsent(wallet, today));
+                chunk.forEach(written::remove);
+            }
+        }
+        LOG.fine(String.format("Flushed last-seen dates for %d wallets", updated));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    /**
+     * Removes every pending entry and returns the wallets to stamp with
+     * {@code today}, marking them as written. Entries from an earlier day are
+     * dropped: writing them after midnight would move {@code pointsDate} back
+     * over a stamp the points jobs or a login already set today. The written
+     * set only remembers the current day so it stays bounded by the number of
+     * wallets active today.
+     */
+    List<String> drain(String today) {
+        if (!today.equals(writtenDay)) {
+            written.clear();
+            writtenDay = today;
+        }
+        List<String> wallets = new ArrayList<>();
+        for (String wallet : new ArrayList<>(pending.keySet())) {
+            String date = pending.remove(wallet);
+            if (!today.equals(date) || today.equals(written.get(wallet))) {
+                continue;
+            }
+            wallets.add(wallet);
+            written.put(wallet, today);
+        }
+        return wallets;
+    }
+}
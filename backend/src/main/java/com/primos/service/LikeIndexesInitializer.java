@@ -0,0 +1,20 @@
+package com.primos.service;
+
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import com.mongodb.client.model.Indexes;
+import com.primos.model.Like;
+
+@Startup
+@ApplicationScoped
+public class LikeIndexesInitializer {
+
+    @PostConstruct
+    void initIndexes() {
+        // Serves the per-wallet lookups and writes as well as counting by tokenId
+        Like.mongoCollection()
+                .createIndex(Indexes.compoundIndex(Indexes.ascending("tokenId"), Indexes.ascending("publicKey")));
+    }
+}
@@ -1,28 +1,82 @@
 package com.primos.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.primos.config.Env;
 import com.primos.model.Like;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 
+/**
+ * Token likes. Toggles are buffered in a {@link ToggleBuffer} and written
+ * every {@code LIKE_FLUSH_MILLIS}; counts and the wallet's own state include
+ * the buffered toggles. Likes are counted straight from the collection, so
+ * their bulk write is the buffer's publish step; it is small and quick, one
+ * upsert or delete per wallet served by the (tokenId, publicKey) index.
+ */
 @ApplicationScoped
 public class LikeService {
+    private static final long FLUSH_MS = Env.positiveInt("LIKE_FLUSH_MILLIS", 250);
+    private static final int BATCH_SIZE = 500;
+
+    private ToggleBuffer<Boolean> buffer;
+
+    @PostConstruct
+    void start() {
+        buffer = new ToggleBuffer<>("likes", FLUSH_MS, this::write);
+        buffer.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        buffer.close();
+    }
+
     public long countLikes(String tokenId) {
-        return Like.count("tokenId", tokenId);
+        return buffer.read(() -> Like.count("tokenId", tokenId) + buffer.delta(tokenId).getOrDefault(true, 0L));
     }
 
     public boolean userLiked(String tokenId, String publicKey) {
-        return Like.count("tokenId = ?1 and publicKey = ?2", tokenId, publicKey) > 0;
+        return buffer.read(() -> {
+            ToggleBuffer.Change<Boolean> buffered = buffer.latest(tokenId, publicKey);
+            return buffered != null ? buffered.after() != null : storedLike(tokenId, publicKey) != null;
+        });
     }
 
     public boolean toggleLike(String tokenId, String publicKey) {
-        Like existing = Like.find("tokenId = ?1 and publicKey = ?2", tokenId, publicKey).firstResult();
-        if (existing != null) {
-            existing.delete();
-            return false;
+        return buffer.toggle(tokenId, publicKey, true, LikeService::storedLike) != null;
+    }
+
+    void write(ToggleBuffer.Batch<Boolean> batch) {
+        List<WriteModel<Like>> writes = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (ToggleBuffer.Pending<Boolean> toggle : batch.toggles()) {
+            Bson mine = Filters.and(Filters.eq("tokenId", toggle.tokenId()),
+                    Filters.eq("publicKey", toggle.publicKey()));
+            writes.add(toggle.change().after() == null
+                    ? new DeleteManyModel<>(mine)
+                    : new UpdateOneModel<>(mine, Updates.setOnInsert("createdAt", now),
+                            new UpdateOptions().upsert(true)));
         }
-        Like like = new Like();
-        like.setTokenId(tokenId);
-        like.setPublicKey(publicKey);
-        like.persist();
-        return true;
+        for (int i = 0; i < writes.size(); i += BATCH_SIZE) {
+            Like.<Like>mongoCollection().bulkWrite(writes.subList(i, Math.min(i + BATCH_SIZE, writes.size())),
+                    new BulkWriteOptions().ordered(true));
+        }
+    }
+
+    private static Boolean storedLike(String tokenId, String publicKey) {
+        return Like.count("tokenId = ?1 and publicKey = ?2", tokenId, publicKey) > 0 ? Boolean.TRUE : null;
     }
 }
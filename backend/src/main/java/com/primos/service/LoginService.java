@@ -1,8 +1,21 @@
 package com.primos.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWrapper;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
 import com.primos.model.BetaCode;
 import com.primos.model.User;
 import com.primos.resource.AdminResource;
@@ -20,102 +33,190 @@ public class LoginService {
     private static final String ADMIN_WALLET = AdminResource.ADMIN_WALLET;
 
     @Inject
-    HeliusService heliusService;
+    NftCountRefresher nftCounts;
+
+    @Inject
+    StatsAggregator stats;
 
+    /**
+     * Logs a wallet in. A returning wallet is a single
+     * {@code findOneAndUpdate}: the day rollover and badges are computed by an
+     * update pipeline from the stored document, so nothing is read first. Only
+     * first logins, beta code redemptions and the admin's first login read
+     * the user before writing. Holder status never comes from the client: it
+     * stays as stored, is granted by a redeemed beta code, or is set by
+     * {@link NftCountRefresher} from the on-chain count, refreshed in the
+     * background after the write.
+     */
     public User login(LoginRequest req) {
         validateLoginRequest(req);
 
-        boolean holder = req.primoHolder;
+        boolean hasBetaCode = req.betaCode != null && !req.betaCode.isEmpty();
         boolean isAdminWallet = ADMIN_WALLET.equals(req.publicKey);
-        // Admin wallet bypass: always created and logged in without beta code
-        if (isAdminWallet) {
-            User adminUser = User.find(PUBLIC_KEY_FIELD, req.publicKey).firstResult();
-            if (adminUser == null) {
-                adminUser = createNewUser(req.publicKey, true);
-                adminUser.setBetaRedeemed(true);
-            } else {
-                adminUser.setBetaRedeemed(true);
+        // A beta code only needs checking for wallets that have not redeemed one yet
+        Bson returning = hasBetaCode && !isAdminWallet
+                ? Filters.and(Filters.eq(PUBLIC_KEY_FIELD, req.publicKey), Filters.eq("betaRedeemed", true))
+                : Filters.eq(PUBLIC_KEY_FIELD, req.publicKey);
+        User result = User.<User>mongoCollection().findOneAndUpdate(returning,
+                returningLogin(isAdminWallet, LocalDate.now().toString()),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+        if (result != null) {
+            if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
+                LOGGER.info(String.format("[LoginService] %s login for publicKey: %s",
+                        result.isPrimoHolder() ? "Primo holder" : "Non-primo", req.publicKey));
             }
-            adminUser.persistOrUpdate();
-            return adminUser;
+        } else if (isAdminWallet) {
+            // Admin wallet bypass: always created and logged in without beta code
+            result = upsert(req.publicKey, new Document("betaRedeemed", true), List.of(),
+                    createNewUser(req.publicKey, true));
+            stats.walletCreated(true);
+        } else {
+            result = firstLoginOrRedemption(req, hasBetaCode);
+        }
+        nftCounts.refreshIfStale(req.publicKey);
+        return result;
+    }
+
+    /**
+     * Update pipeline for a returning wallet: starts a new points day when the
+     * stored {@code pointsDate} is not today and adds the badges the stored
+     * profile qualifies for.
+     */
+    private static List<Bson> returningLogin(boolean isAdminWallet, String today) {
+        Document newDay = new Document("$ne", List.of("$pointsDate", today));
+        Document badges = new Document("$ifNull", List.of("$badges", List.of()));
+        Document sns = new Document("$regexMatch", new Document("input",
+                new Document("$ifNull", List.of("$domain", ""))).append("regex", "\\.sol$"));
+        Document trader = new Document("$or", List.of(
+                nonEmpty("$socials.slingshot"), nonEmpty("$socials.axiom"), nonEmpty("$socials.vector")));
+        Document earned = new Document("$filter", new Document("input", List.of(
+                new Document("$cond", Arrays.asList(sns, "sns", null)),
+                new Document("$cond", Arrays.asList(trader, "trader", null))))
+                .append("cond", new Document("$and", List.of(
+                        new Document("$ne", Arrays.asList("$$this", null)),
+                        new Document("$not", List.of(new Document("$in", List.of("$$this", badges))))))));
+
+        Document set = new Document("pointsDate", today)
+                .append("pointsToday", new Document("$cond", List.of(newDay, 0, "$pointsToday")))
+                .append("iconPointsToday", new Document("$cond", List.of(newDay, 0, "$iconPointsToday")))
+                .append("holderPointsToday", new Document("$cond", List.of(newDay, 0, "$holderPointsToday")))
+                .append("badges", new Document("$concatArrays", List.of(badges, earned)));
+        if (isAdminWallet) {
+            set.append("betaRedeemed", true);
         }
+        return List.of(new Document("$set", set));
+    }
+
+    private static Document nonEmpty(String field) {
+        return new Document("$gt", List.of(new Document("$strLenCP", new Document("$ifNull", List.of(field, ""))), 0));
+    }
+
+    /**
+     * The slow path: a wallet logging in for the first time, or redeeming a
+     * beta code. Reads the user, validates the code and applies everything in
+     * one upsert. A wallet that appeared since the first update simply logs in.
+     */
+    private User firstLoginOrRedemption(LoginRequest req, boolean hasBetaCode) {
+        User user = User.find(PUBLIC_KEY_FIELD, req.publicKey).firstResult();
+        Document set = new Document();
+        List<String> badges = new ArrayList<>();
+        User created = null;
+        boolean holder;
 
-        User user = User.find(PUBLIC_KEY_FIELD, req.publicKey)
-                .firstResult();
         if (user == null) {
             validateBetaCodeOrThrow(req.betaCode);
-            // If beta code was provided, treat user as primo holder
-            boolean newHolder = holder || (req.betaCode != null && !req.betaCode.isEmpty());
-            user = createNewUser(req.publicKey, newHolder);
-            user.setBetaRedeemed(true);
-            if (req.betaCode != null && !req.betaCode.isEmpty()) {
-                user.setBetaCode(req.betaCode);
-            }
+            // Treat the user as a primo holder once the beta code checks out
+            holder = true;
+            created = createNewUser(req.publicKey, holder);
+            set.append("betaRedeemed", true);
+            set.append("betaCode", req.betaCode);
             if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
                 LOGGER.info(String.format("[LoginService] Created new user for publicKey: %s", req.publicKey));
             }
         } else {
-            updateHolderStatus(user, holder);
-            if (!user.isBetaRedeemed() && req.betaCode != null && !req.betaCode.isEmpty()) {
+            holder = user.isPrimoHolder();
+            if (!user.isBetaRedeemed() && hasBetaCode) {
                 // Redeemed a beta code: grant betaRedeemed, primoHolder, and store code
                 validateBetaCodeOrThrow(req.betaCode);
-                user.setBetaRedeemed(true);
-                user.setPrimoHolder(true);
-                user.setBetaCode(req.betaCode);
+                set.append("betaRedeemed", true);
+                set.append("betaCode", req.betaCode);
+                holder = true;
             }
             if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
                 LOGGER.info(String.format("[LoginService] User already exists for publicKey: %s", req.publicKey));
             }
         }
-        user.persistOrUpdate();
-
-        boolean wasHolder = user.isPrimoHolder();
+        boolean wasHolder = user == null ? holder : user.isPrimoHolder();
 
-        // Update NFT count from the blockchain on each login
-        int count = heliusService.getPrimoCount(user.getPublicKey());
-        user.setNftCount(count);
-        boolean isHolder = count > 0;
-        updateHolderStatus(user, isHolder);
+        // Prefer the last on-chain NFT count; it is refreshed after the write
+        Integer count = nftCounts.lastKnown(req.publicKey);
+        boolean isHolder = count != null ? count > 0 : holder;
+        if (count != null) {
+            set.append("nftCount", count);
+        }
+        set.append("primoHolder", isHolder);
+        set.append("daoMember", isHolder);
 
-        if (isHolder && !wasHolder) {
-            user.setPointsToday(0);
-            user.setIconPointsToday(0);
-            user.setHolderPointsToday(0);
-            user.setPointsDate(LocalDate.now().toString());
-            user.persistOrUpdate();
+        String today = LocalDate.now().toString();
+        boolean newDay = user != null && !today.equals(user.getPointsDate());
+        if ((isHolder && !wasHolder) || newDay) {
+            set.append("pointsDate", today);
+            set.append("pointsToday", 0);
+            set.append("iconPointsToday", 0);
+            set.append("holderPointsToday", 0);
         }
 
         if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
-            if (user.isPrimoHolder()) {
+            if (isHolder) {
                 LOGGER.info(String.format("[LoginService] Primo holder login for publicKey: %s", req.publicKey));
             } else {
                 LOGGER.info(String.format("[LoginService] Non-primo login for publicKey: %s", req.publicKey));
             }
         }
-        if (user.getDomain() != null && user.getDomain().endsWith(".sol")) {
-            user.addBadge("sns");
-            user.persistOrUpdate();
+        if (user != null && user.getDomain() != null && user.getDomain().endsWith(".sol")) {
+            badges.add("sns");
         }
-        if (user.getSocials() != null) {
+        if (user != null && user.getSocials() != null) {
             User.SocialLinks links = user.getSocials();
             if ((links.getSlingshot() != null && !links.getSlingshot().isEmpty())
                     || (links.getAxiom() != null && !links.getAxiom().isEmpty())
                     || (links.getVector() != null && !links.getVector().isEmpty())) {
-                user.addBadge("trader");
-                user.persistOrUpdate();
+                badges.add("trader");
             }
         }
 
-        // Ensure current user's date is current
-        String today = LocalDate.now().toString();
-        if (!today.equals(user.getPointsDate())) {
-            user.setPointsDate(today);
-            user.setPointsToday(0);
-            user.setIconPointsToday(0);
-            user.setHolderPointsToday(0);
+        User result = upsert(req.publicKey, set, badges, created);
+        if (user == null) {
+            stats.walletCreated(isHolder);
+        } else {
+            stats.holderChanged(user.isPrimoHolder(), isHolder);
         }
-        user.persistOrUpdate();
-        return user;
+        if (count != null) {
+            stats.nftCountChanged(user == null ? 0 : user.getNftCount(), count);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the collected {@code $set} fields and badges in one
+     * {@code findOneAndUpdate}. For a new user the remaining defaults of
+     * {@code created} are written with {@code $setOnInsert}.
+     */
+    private User upsert(String publicKey, Document set, List<String> badges, User created) {
+        List<Bson> updates = new ArrayList<>();
+        updates.add(new Document("$set", set));
+        if (!badges.isEmpty()) {
+            updates.add(Updates.addEachToSet("badges", badges));
+        }
+        MongoCollection<User> users = User.mongoCollection();
+        if (created != null) {
+            BsonDocument defaults = BsonDocumentWrapper.asBsonDocument(created, users.getCodecRegistry());
+            defaults.remove("_id");
+            set.keySet().forEach(defaults::remove);
+            updates.add(new BsonDocument("$setOnInsert", defaults));
+        }
+        return users.findOneAndUpdate(Filters.eq(PUBLIC_KEY_FIELD, publicKey), Updates.combine(updates),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
     }
 
     private void validateLoginRequest(LoginRequest req) {
@@ -141,6 +242,9 @@ public class LoginService {
             throw new ForbiddenException();
         }
         // Mark beta code as redeemed
+        if (!beta.isRedeemed()) {
+            stats.betaCodeRedeemed();
+        }
         beta.setRedeemed(true);
         beta.persistOrUpdate();
     }
@@ -162,15 +266,4 @@ public class LoginService {
         return user;
     }
 
-    private void updateHolderStatus(User user, boolean holder) {
-        user.setPrimoHolder(holder);
-        if (holder && !user.isDaoMember()) {
-            user.setDaoMember(true);
-        }
-        if (!holder && user.isDaoMember()) {
-            user.setDaoMember(false);
-        }
-        user.persistOrUpdate();
-    }
-
 }
@@ -0,0 +1,138 @@
+package com.primos.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import com.primos.model.TrenchContract;
+import com.primos.model.TrenchContractCaller;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Fills in market caps for trench callers off the request path.
+ * {@link TrenchService#add} persists callers with {@code marketCapPending} set
+ * and queues them here; a background worker drains the queue, looks up the
+ * market caps of a whole batch together and writes them to the callers (and
+ * to the contract if the caller was its first). Callers still pending after a
+ * restart or a full queue are picked up again by a periodic sweep.
+ */
+@ApplicationScoped
+public class MarketCapEnricher {
+    private static final Logger LOG = Logger.getLogger(MarketCapEnricher.class.getName());
+    private static final int QUEUE_CAPACITY = 1_000;
+
+    record Pending(ObjectId callerId, String contract, String caller, Long calledAt) {
+    }
+
+    @Inject
+    CoinGeckoService coinGeckoService;
+
+    @Inject
+    TrenchFeed feed;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread worker;
+
+    @PostConstruct
+    void start() {
+        worker = Thread.ofVirtual().name("market-cap-enricher").start(this::run);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.interrupt();
+    }
+
+    public void enqueue(TrenchContractCaller caller) {
+        if (!queue.offer(new Pending(caller.id, caller.getContract(), caller.getCaller(), caller.getCalledAt()))) {
+            LOG.warning("Market cap queue full, caller for " + caller.getContract() + " left for the sweep");
+        }
+    }
+
+    @Scheduled(every = "5m", delayed = "30s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void requeuePending() {
+        if (!queue.isEmpty()) {
+            return;
+        }
+        List<TrenchContractCaller> pending = TrenchContractCaller.find("marketCapPending", true)
+                .page(0, QUEUE_CAPACITY).list();
+        pending.forEach(this::enqueue);
+        if (!pending.isEmpty()) {
+            LOG.info(String.format("Requeued %d callers with a pending market cap", pending.size()));
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Pending> batch = new ArrayList<>();
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOG.warning("Market cap enrichment failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void process(List<Pending> batch) {
+        Map<String, List<Pending>> byContract = new LinkedHashMap<>();
+        batch.forEach(p -> byContract.computeIfAbsent(p.contract(), k -> new ArrayList<>()).add(p));
+        Map<String, Double> marketCaps = coinGeckoService.fetchMarketCaps(byContract.keySet());
+        for (Map.Entry<String, List<Pending>> entry : byContract.entrySet()) {
+            String contract = entry.getKey();
+            Double marketCap = marketCaps.get(contract);
+            if (marketCap == null) {
+                LOG.log(java.util.logging.Level.WARNING, "Could not fetch market cap for contract: {0}", contract);
+            }
+            for (Pending pending : entry.getValue()) {
+                apply(pending, marketCap);
+            }
+        }
+    }
+
+    private void apply(Pending pending, Double marketCap) {
+        // Clear the pending flag even without a value; backfill retries null market caps.
+        // A caller the backfill already filled is no longer pending and keeps its value.
+        long updated = TrenchContractCaller.mongoCollection().updateOne(
+                Filters.and(Filters.eq("_id", pending.callerId()), Filters.eq("marketCapPending", true)),
+                marketCap == null
+                        ? Updates.set("marketCapPending", false)
+                        : Updates.combine(Updates.set("marketCapAtCall", marketCap),
+                                Updates.set("marketCapPending", false)))
+                .getModifiedCount();
+        if (updated == 0 || marketCap == null) {
+            return;
+        }
+        TrenchContract contract = TrenchContract.<TrenchContract>mongoCollection().findOneAndUpdate(
+                Filters.and(
+                        Filters.eq("contract", pending.contract()),
+                        Filters.eq("firstCallerAt", pending.calledAt()),
+                        Filters.eq("firstCallerMarketCap", null)),
+                Updates.set("firstCallerMarketCap", marketCap),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+        if (contract != null) {
+            feed.contractUpdated(contract);
+        }
+        feed.callerEnriched(pending.contract(), pending.caller(), pending.calledAt(), marketCap);
+        LOG.log(java.util.logging.Level.INFO, "Filled market cap for contract {0}: {1}",
+                new Object[] { pending.contract(), marketCap });
+    }
+}
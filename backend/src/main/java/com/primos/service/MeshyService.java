@@ -1,13 +1,23 @@
 package com.primos.service;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.StringReader;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.RetryPolicy;
+import com.primos.http.Upstream;
+
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
@@ -24,31 +34,23 @@ public class MeshyService {
     private static final String API_KEY = System.getenv().getOrDefault("MESHY_API_KEY", "");
     private static final String APPLICATION_JSON = "application/json";
     private static final String MESHY_API_URL = "https://api.meshy.xyz/openapi/v1/image-to-3d";
-    private static final HttpClient client = HttpClient.newBuilder()
-            .sslContext(createSslContext())
-            .build();
+    // startRender is a POST, so it is only retried when Meshy certainly did not take it
+    private static final RetryPolicy RETRY = RetryPolicy.of(3, Duration.ofSeconds(1), Duration.ofSeconds(10));
 
-    private static javax.net.ssl.SSLContext createSslContext() {
-        try {
-            System.setProperty("jdk.tls.client.enableSNI", "false");
-            return javax.net.ssl.SSLContext.getDefault();
-        } catch (java.security.NoSuchAlgorithmException e) {
-            LOG.log(java.util.logging.Level.SEVERE, "NoSuchAlgorithmException while creating SSLContext: {0}",
-                    e.getMessage());
-            throw new RuntimeException("Failed to create SSLContext: NoSuchAlgorithmException encountered", e);
-        } catch (Exception e) {
-            LOG.log(java.util.logging.Level.SEVERE, "Unexpected error creating SSLContext: {0}", e.getMessage());
-            throw new RuntimeException("Unexpected error creating SSLContext", e);
-        }
-    }
+    @Inject
+    OutboundHttpClient http;
 
-    // Refactor startRender to properly catch interrupts and IO separately, use
-    // try-with-resources, and return task ID
-    public String startRender(String imageUrl) {
+    /**
+     * Starts an image-to-3D job without blocking the caller; retries are
+     * scheduled by {@link OutboundHttpClient#sendAsync}.
+     *
+     * @return the Meshy task ID, or null if the job could not be started
+     */
+    public CompletableFuture<String> startRender(String imageUrl) {
         // Ensure API key is set
         if (API_KEY.isBlank()) {
             LOG.warning("Meshy startRender failed: no API key configured");
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         // Normalize IPFS URLs to include a .png filename for Meshy API
         String normalizedUrl = imageUrl;
@@ -70,50 +72,47 @@ public class MeshyService {
                 .add("should_texture", true)
                 .build();
         String payload = payloadJson.toString();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(MESHY_API_URL))
+        HttpRequest request = http.request(Upstream.MESHY, MESHY_API_URL)
                 .header("Authorization", "Bearer " + API_KEY)
                 .header("Accept", APPLICATION_JSON)
                 .header("Content-Type", APPLICATION_JSON)
                 .POST(HttpRequest.BodyPublishers.ofString(payload))
                 .build();
-        try {
-            // Send request and get response
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            int status = response.statusCode();
-            if (status < 200 || status >= 300) {
-                LOG.log(java.util.logging.Level.WARNING, "Meshy startRender HTTP {0}: {1}",
-                        new Object[] { status, response.body() });
-                return null;
-            }
-            // Parse JSON and extract 'result' field
-            try (JsonReader reader = Json.createReader(new StringReader(response.body()))) {
-                JsonObject json = reader.readObject();
-                String taskId = json.getString("result", null);
-                if (taskId == null && LOG.isLoggable(java.util.logging.Level.WARNING)) {
-                    LOG.log(java.util.logging.Level.WARNING, "Meshy startRender missing 'result' in response: {0}",
-                            response.body());
-                }
-                return taskId;
+        return http.sendAsync(Upstream.MESHY, request, HttpResponse.BodyHandlers.ofString(), RETRY)
+                .thenApply(MeshyService::taskId)
+                .exceptionally(e -> {
+                    LOG.log(java.util.logging.Level.WARNING, "Meshy startRender failed: {0}", e.getMessage());
+                    return null;
+                });
+    }
+
+    private static String taskId(HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (status < 200 || status >= 300) {
+            LOG.log(java.util.logging.Level.WARNING, "Meshy startRender HTTP {0}: {1}",
+                    new Object[] { status, response.body() });
+            return null;
+        }
+        // Parse JSON and extract 'result' field
+        try (JsonReader reader = Json.createReader(new StringReader(response.body()))) {
+            JsonObject json = reader.readObject();
+            String taskId = json.getString("result", null);
+            if (taskId == null && LOG.isLoggable(java.util.logging.Level.WARNING)) {
+                LOG.log(java.util.logging.Level.WARNING, "Meshy startRender missing 'result' in response: {0}",
+                        response.body());
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            LOG.log(java.util.logging.Level.WARNING, "Meshy startRender interrupted: {0}", e.getMessage());
-        } catch (java.io.IOException e) {
-            LOG.log(java.util.logging.Level.WARNING, "Meshy startRender failed: {0}", e.getMessage());
+            return taskId;
         }
-        return null;
     }
 
     public RenderStatus checkStatus(String jobId) {
         try {
             // Meshy image-to-3d status endpoint: /openapi/v1/image-to-3d/:id
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(MESHY_API_URL + "/" + jobId))
+            HttpRequest req = http.request(Upstream.MESHY, MESHY_API_URL + "/" + jobId)
                     .header("Authorization", "Bearer " + API_KEY)
                     .header("Accept", APPLICATION_JSON)
                     .build();
-            HttpResponse<String> res = client.send(req, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> res = send(req);
             if (res.statusCode() == 200) {
                 try (JsonReader reader = Json.createReader(new StringReader(res.body()))) {
                     JsonObject obj = reader.readObject();
@@ -129,15 +128,10 @@ public class MeshyService {
                 LOG.log(java.util.logging.Level.WARNING, "Meshy checkStatus failed: HTTP {0} - {1}",
                         new Object[] { res.statusCode(), res.body() });
             }
-        } catch (java.io.IOException e) {
+        } catch (IOException e) {
             if (LOG.isLoggable(java.util.logging.Level.WARNING)) {
                 LOG.log(java.util.logging.Level.WARNING, "Meshy checkStatus IOException: {0}", e.getMessage());
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            if (LOG.isLoggable(java.util.logging.Level.WARNING)) {
-                LOG.log(java.util.logging.Level.WARNING, "Meshy checkStatus InterruptedException: {0}", e.getMessage());
-            }
         } catch (Exception e) {
             if (LOG.isLoggable(java.util.logging.Level.WARNING)) {
                 LOG.log(java.util.logging.Level.WARNING, "Meshy checkStatus Exception: {0}", e.getMessage());
@@ -146,6 +140,28 @@ public class MeshyService {
         return null;
     }
 
+    /**
+     * Sends a Meshy API request through the shared retry engine and waits for
+     * the result. Only the status job calls this; the wait is interruptible
+     * and cancels the call.
+     */
+    private HttpResponse<String> send(HttpRequest request) throws IOException {
+        CompletableFuture<HttpResponse<String>> call = http.sendAsync(Upstream.MESHY, request,
+                HttpResponse.BodyHandlers.ofString(), RETRY);
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Meshy request interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     private String extractModelUrl(JsonObject obj) {
         if (obj.containsKey("model_urls")) {
             JsonObject models = obj.getJsonObject("model_urls");
@@ -168,27 +184,25 @@ public class MeshyService {
     @ApplicationScoped
     public static class MeshyProxy {
 
+        @Inject
+        OutboundHttpClient http;
+
         @POST
         @Consumes(MediaType.APPLICATION_JSON)
         @Produces(MediaType.APPLICATION_JSON)
-        public Response proxyToMeshy(JsonObject payload) {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(MESHY_API_URL))
+        public CompletionStage<Response> proxyToMeshy(JsonObject payload) {
+            HttpRequest request = http.request(Upstream.MESHY, MESHY_API_URL)
                     .header("Authorization", "Bearer " + API_KEY)
                     .header("Content-Type", APPLICATION_JSON)
                     .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
                     .build();
-            try {
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-                return Response.status(response.statusCode()).entity(response.body()).build();
-            } catch (java.io.IOException e) {
-                LOG.log(java.util.logging.Level.WARNING, "Meshy proxy IOException: {0}", e.getMessage());
-                return Response.status(500).entity("Error: " + e.getMessage()).build();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                LOG.log(java.util.logging.Level.WARNING, "Meshy proxy InterruptedException: {0}", e.getMessage());
-                return Response.status(500).entity("Error: " + e.getMessage()).build();
-            }
+            return http.sendAsync(Upstream.MESHY, request, HttpResponse.BodyHandlers.ofString(), RetryPolicy.NONE)
+                    .thenApply(response -> Response.status(response.statusCode()).entity(response.body()).build())
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        LOG.log(java.util.logging.Level.WARNING, "Meshy proxy failed: {0}", cause.getMessage());
+                        return Response.status(500).entity("Error: " + cause.getMessage()).build();
+                    });
         }
     }
 }
@@ -0,0 +1,106 @@
+package com.primos.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import com.primos.config.Env;
+import com.primos.model.User;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Keeps login off the Helius request path. The on-chain Primo count of a
+ * wallet is cached for {@code NFT_COUNT_TTL_SECONDS}; when it is missing or
+ * expired a single background fetch per wallet refreshes the cache and writes
+ * the new count and holder flags to the user.
+ */
+@ApplicationScoped
+public class NftCountRefresher {
+    private static final Logger LOG = Logger.getLogger(NftCountRefresher.class.getName());
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(Env.positiveInt("NFT_COUNT_TTL_SECONDS", 300));
+    private static final int MAX_ENTRIES = 10_000;
+
+    private record CachedCount(int count, long fetchedAt) {
+    }
+
+    @Inject
+    HeliusService heliusService;
+
+    @Inject
+    StatsAggregator stats;
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Returns the last count fetched for the wallet, even if it has expired,
+     * or {@code null} if the wallet has never been fetched.
+     */
+    public Integer lastKnown(String wallet) {
+        CachedCount cached = counts.get(wallet);
+        return cached == null ? null : cached.count();
+    }
+
+    /**
+     * Starts a background fetch unless the cached count is still fresh or a
+     * fetch for this wallet is already running.
+     */
+    public void refreshIfStale(String wallet) {
+        CachedCount cached = counts.get(wallet);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt() < TTL_MILLIS) {
+            return;
+        }
+        if (!inFlight.add(wallet)) {
+            return;
+        }
+        Thread.ofVirtual().name("nft-count-refresh").start(() -> {
+            try {
+                refresh(wallet);
+            } catch (Exception e) {
+                LOG.warning(String.format("Failed to refresh NFT count for %s: %s", wallet, e.getMessage()));
+            } finally {
+                inFlight.remove(wallet);
+            }
+        });
+    }
+
+    private void refresh(String wallet) {
+        int count = heliusService.getPrimoCount(wallet);
+        if (counts.size() >= MAX_ENTRIES) {
+            long cutoff = System.currentTimeMillis() - TTL_MILLIS;
+            counts.values().removeIf(c -> c.fetchedAt() < cutoff);
+        }
+        counts.put(wallet, new CachedCount(count, System.currentTimeMillis()));
+
+        boolean isHolder = count > 0;
+        if (isHolder) {
+            // A wallet that just became a holder starts the day with fresh counters
+            User.mongoCollection().updateOne(
+                    Filters.and(Filters.eq("publicKey", wallet), Filters.ne("primoHolder", true)),
+                    Updates.combine(
+                            Updates.set("pointsToday", 0),
+                            Updates.set("iconPointsToday", 0),
+                            Updates.set("holderPointsToday", 0),
+                            Updates.set("pointsDate", LocalDate.now().toString())));
+        }
+        User previous = User.<User>mongoCollection().findOneAndUpdate(Filters.eq("publicKey", wallet),
+                Updates.combine(
+                        Updates.set("nftCount", count),
+                        Updates.set("primoHolder", isHolder),
+                        Updates.set("daoMember", isHolder)),
+                new FindOneAndUpdateOptions().projection(Projections.include("nftCount", "primoHolder")));
+        if (previous != null) {
+            stats.nftCountChanged(previous.getNftCount(), count);
+            stats.holderChanged(previous.isPrimoHolder(), isHolder);
+        }
+    }
+}
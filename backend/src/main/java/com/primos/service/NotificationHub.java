@@ -0,0 +1,168 @@
+package com.primos.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.primos.model.Notification;
+
+import io.quarkus.panache.common.Sort;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * In-process fan-out of new notifications to the wallets' open SSE streams.
+ * Event ids are notification ids, which grow over time, so a client
+ * reconnecting with {@code Last-Event-ID} is sent what it missed from MongoDB
+ * before live events resume. Events published while that backlog is read are
+ * held back and sent after it, skipping any the backlog already contained.
+ * <p>
+ * Only streams connected to this instance are reached; a client connected
+ * elsewhere catches up on its next reconnect.
+ */
+@ApplicationScoped
+public class NotificationHub {
+    private static final Logger LOG = Logger.getLogger(NotificationHub.class.getName());
+    static final String EVENT_NAME = "notification";
+    // Caps the catch-up after a long disconnect; older notifications are in the list endpoint
+    static final int MAX_REPLAY = 100;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Attaches {@code sink} to the wallet's notifications, first replaying
+     * those after {@code lastEventId} if the client is resuming.
+     */
+    public void subscribe(String publicKey, SseEventSink sink, Sse sse, String lastEventId) {
+        Subscriber subscriber = new Subscriber(publicKey, sink, sse);
+        // Register before reading the backlog so nothing published in between is lost
+        subscribers.computeIfAbsent(publicKey, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        List<Notification> missed = List.of();
+        try {
+            if (lastEventId != null && ObjectId.isValid(lastEventId)) {
+                missed = missedSince(publicKey, new ObjectId(lastEventId));
+            }
+        } catch (RuntimeException e) {
+            remove(subscriber);
+            throw e;
+        }
+        subscriber.resume(missed);
+    }
+
+    /**
+     * The wallet's notifications after {@code lastEventId}, oldest first.
+     */
+    List<Notification> missedSince(String publicKey, ObjectId lastEventId) {
+        return Notification.<Notification>find("publicKey = ?1 and _id > ?2", Sort.ascending("_id"),
+                publicKey, lastEventId).page(0, MAX_REPLAY).list();
+    }
+
+    public void publish(Notification notification) {
+        Set<Subscriber> streams = subscribers.get(notification.getPublicKey());
+        if (streams != null) {
+            streams.forEach(subscriber -> subscriber.send(notification));
+        }
+    }
+
+    public int connections() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Comments keep idle connections open through proxies and let us notice
+     * clients that went away without closing the stream.
+     */
+    @Scheduled(every = "25s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void keepAlive() {
+        subscribers.values().forEach(streams -> streams.forEach(Subscriber::ping));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> subscriber.sink.close()));
+        subscribers.clear();
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.publicKey, (k, streams) -> {
+            streams.remove(subscriber);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private final class Subscriber {
+        private final String publicKey;
+        private final SseEventSink sink;
+        private final Sse sse;
+        // Live events held back until the replay is sent; null once live
+        private List<Notification> held = new ArrayList<>();
+
+        Subscriber(String publicKey, SseEventSink sink, Sse sse) {
+            this.publicKey = publicKey;
+            this.sink = sink;
+            this.sse = sse;
+        }
+
+        synchronized void resume(List<Notification> missed) {
+            Set<ObjectId> replayed = new HashSet<>();
+            for (Notification notification : missed) {
+                replayed.add(notification.id);
+                write(notification);
+            }
+            // Anything published while the backlog was read may be in it too
+            for (Notification notification : held) {
+                if (!replayed.contains(notification.id)) {
+                    write(notification);
+                }
+            }
+            held = null;
+        }
+
+        synchronized void send(Notification notification) {
+            if (held != null) {
+                held.add(notification);
+            } else {
+                write(notification);
+            }
+        }
+
+        synchronized void ping() {
+            if (held == null) {
+                emit(sse.newEventBuilder().comment("keep-alive").build());
+            }
+        }
+
+        private void write(Notification notification) {
+            emit(sse.newEventBuilder()
+                    .id(notification.id.toHexString())
+                    .name(EVENT_NAME)
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(Notification.class, notification)
+                    .build());
+        }
+
+        private void emit(OutboundSseEvent event) {
+            if (sink.isClosed()) {
+                remove(this);
+                return;
+            }
+            sink.send(event).exceptionally(e -> {
+                LOG.fine("Dropping notification stream for " + publicKey + ": " + e.getMessage());
+                remove(this);
+                sink.close();
+                return null;
+            });
+        }
+    }
+}
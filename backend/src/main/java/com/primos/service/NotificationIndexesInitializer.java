@@ -0,0 +1,75 @@
+package com.primos.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.bson.Document;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.MergeOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import com.primos.config.Env;
+import com.primos.model.Notification;
+import com.primos.model.NotificationCount;
+
+@Startup
+@ApplicationScoped
+public class NotificationIndexesInitializer {
+    private static final Logger LOG = Logger.getLogger(NotificationIndexesInitializer.class.getName());
+    private static final long READ_TTL_DAYS = Env.positiveInt("NOTIFICATION_READ_TTL_DAYS", 30);
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+    @PostConstruct
+    void initIndexes() {
+        Notification.mongoCollection()
+                .createIndex(Indexes.compoundIndex(Indexes.ascending("publicKey"), Indexes.descending("createdAt"),
+                        Indexes.descending("_id")));
+        // Unread notifications have no readAt and never expire
+        try {
+            Notification.mongoCollection()
+                    .createIndex(Indexes.ascending("readAt"),
+                            new IndexOptions().expireAfter(READ_TTL_DAYS, TimeUnit.DAYS));
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != INDEX_OPTIONS_CONFLICT) {
+                throw e;
+            }
+            // NOTIFICATION_READ_TTL_DAYS changed since the index was built; adjust it in place
+            LOG.info("Changing the read notification TTL to " + READ_TTL_DAYS + " days");
+            Notification.mongoDatabase().runCommand(new Document("collMod",
+                    Notification.mongoCollection().getNamespace().getCollectionName())
+                    .append("index", new Document("keyPattern", new Document("readAt", 1))
+                            .append("expireAfterSeconds", TimeUnit.DAYS.toSeconds(READ_TTL_DAYS))));
+        }
+        NotificationCount.mongoCollection()
+                .createIndex(Indexes.ascending("publicKey"), new IndexOptions().unique(true));
+
+        // Notifications read before readAt existed start their TTL now
+        Notification.mongoCollection().updateMany(
+                Filters.and(Filters.eq("read", true), Filters.exists("readAt", false)),
+                Updates.set("readAt", new Date()));
+        if (NotificationCount.count() == 0 && Notification.count() > 0) {
+            LOG.info("Seeding notificationCounts from existing notifications");
+            Notification.mongoCollection().aggregate(List.of(
+                    Aggregates.match(Filters.eq("read", false)),
+                    Aggregates.group("$publicKey", Accumulators.sum("unread", 1)),
+                    Aggregates.project(Projections.fields(Projections.excludeId(),
+                            Projections.computed("publicKey", "$_id"), Projections.include("unread"))),
+                    Aggregates.merge(NotificationCount.mongoCollection().getNamespace().getCollectionName(),
+                            new MergeOptions().uniqueIdentifier("publicKey")
+                                    .whenMatched(MergeOptions.WhenMatched.REPLACE))))
+                    .toCollection();
+        }
+    }
+}
@@ -1,38 +1,147 @@
 package com.primos.service;
 
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
 import com.primos.model.Notification;
+import com.primos.model.NotificationCount;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.Date;
 import java.util.List;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
+/**
+ * Wallet notifications. Lists are paged newest first by (createdAt, _id) with
+ * an opaque cursor, and the unread total is kept in a per-wallet
+ * {@link NotificationCount} rather than counted.
+ */
 @ApplicationScoped
 public class NotificationService {
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 100;
+    static final Bson NEWEST_FIRST = Sorts.descending("createdAt", "_id");
+
+    /**
+     * One page of notifications; {@code nextCursor} is {@code null} on the
+     * last page.
+     */
+    public record Page(List<Notification> items, String nextCursor) {
+    }
+
+    @Inject
+    NotificationHub hub;
+
     public void add(String publicKey, String message) {
         Notification n = new Notification();
         n.setPublicKey(publicKey);
         n.setMessage(message);
         n.setRead(false);
         n.persist();
+        adjustUnread(publicKey, 1);
+        hub.publish(n);
+    }
+
+    /**
+     * Returns up to {@code limit} notifications older than {@code cursor}
+     * (from a previous page), newest first.
+     */
+    public Page forUser(String publicKey, String cursor, Integer limit) {
+        int size = limit != null && limit > 0 ? Math.min(limit, MAX_LIMIT) : DEFAULT_LIMIT;
+        Notification after = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+        List<Notification> items = find(pageFilter(publicKey, after), size);
+        String next = items.size() == size ? encodeCursor(items.get(items.size() - 1)) : null;
+        return new Page(items, next);
+    }
+
+    /**
+     * The wallet's notifications that sort after {@code after} in
+     * {@link #NEWEST_FIRST} order, or all of them for the first page. Ties on
+     * {@code createdAt} are broken by {@code _id}, so no notification is
+     * skipped or repeated across pages.
+     */
+    static Bson pageFilter(String publicKey, Notification after) {
+        if (after == null) {
+            return Filters.eq("publicKey", publicKey);
+        }
+        return Filters.and(Filters.eq("publicKey", publicKey), Filters.or(
+                Filters.lt("createdAt", after.getCreatedAt()),
+                Filters.and(Filters.eq("createdAt", after.getCreatedAt()), Filters.lt("_id", after.id))));
+    }
+
+    List<Notification> find(Bson filter, int size) {
+        return Notification.<Notification>find(filter, NEWEST_FIRST).page(0, size).list();
     }
 
-    public List<Notification> forUser(String publicKey) {
-        return Notification.list("publicKey = ?1 order by createdAt desc", publicKey);
+    public long unreadCount(String publicKey) {
+        NotificationCount count = NotificationCount.find("publicKey", publicKey).firstResult();
+        return count != null ? Math.max(count.getUnread(), 0) : 0;
     }
 
     public Notification markRead(ObjectId id) {
-        Notification n = Notification.findById(id);
+        // Only the call that flips read decrements the counter
+        Notification n = flipRead(id);
         if (n != null) {
-            n.setRead(true);
-            n.persistOrUpdate();
+            adjustUnread(n.getPublicKey(), -1);
+            return n;
         }
-        return n;
+        return findById(id);
     }
 
     public void delete(ObjectId id) {
-        Notification.deleteById(id);
+        Notification n = remove(id);
+        if (n != null && !n.isRead()) {
+            adjustUnread(n.getPublicKey(), -1);
+        }
+    }
+
+    /**
+     * Marks the notification read if it is still unread.
+     *
+     * @return the updated notification, or {@code null} if it was already
+     *         read or does not exist
+     */
+    Notification flipRead(ObjectId id) {
+        return Notification.<Notification>mongoCollection().findOneAndUpdate(
+                Filters.and(Filters.eq("_id", id), Filters.eq("read", false)),
+                Updates.combine(Updates.set("read", true), Updates.set("readAt", new Date())),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+    }
+
+    Notification remove(ObjectId id) {
+        return Notification.<Notification>mongoCollection().findOneAndDelete(Filters.eq("_id", id));
+    }
+
+    Notification findById(ObjectId id) {
+        return Notification.findById(id);
     }
 
     public void deleteAll(String publicKey) {
         Notification.delete("publicKey", publicKey);
+        NotificationCount.delete("publicKey", publicKey);
+    }
+
+    static String encodeCursor(Notification n) {
+        return n.getCreatedAt() + "_" + n.id.toHexString();
+    }
+
+    static Notification decodeCursor(String cursor) {
+        int separator = cursor.indexOf('_');
+        if (separator <= 0 || !ObjectId.isValid(cursor.substring(separator + 1))) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        Notification n = new Notification();
+        n.setCreatedAt(Long.parseLong(cursor.substring(0, separator)));
+        n.id = new ObjectId(cursor.substring(separator + 1));
+        return n;
+    }
+
+    void adjustUnread(String publicKey, int delta) {
+        NotificationCount.mongoCollection().updateOne(Filters.eq("publicKey", publicKey),
+                Updates.inc("unread", delta), new UpdateOptions().upsert(true));
     }
 }
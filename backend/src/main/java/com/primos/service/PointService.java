@@ -1,11 +1,18 @@
 package com.primos.service;
 
-import java.time.LocalDate;
 import java.util.logging.Logger;
 
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
 import com.primos.model.User;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.NotFoundException;
@@ -15,6 +22,13 @@ public class PointService {
     private static final Logger LOGGER = Logger.getLogger(PointService.class.getName());
     public static final int MAX_POINTS_PER_DAY = 1000;
     public static final int MAX_ICON_POINTS_PER_DAY = 4;
+    static final Bson INCREMENT = Updates.combine(
+            Updates.inc("points", 1),
+            Updates.inc("pointsToday", 1),
+            Updates.inc("iconPointsToday", 1));
+
+    @Inject
+    StatsAggregator stats;
 
     public User addPoint(String publicKey, String walletKey) {
         if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
@@ -25,43 +39,63 @@ public class PointService {
             LOGGER.warning("[PointService] Forbidden: walletKey missing or does not match publicKey");
             throw new ForbiddenException();
         }
-        User user = User.find("publicKey", publicKey).firstResult();
+        // Note: Daily points reset is now handled globally in LoginService when first
+        // user logs in
+        // Individual users no longer reset their own points here
+        User user = users().findOneAndUpdate(capFilter(publicKey), INCREMENT,
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
         if (user == null) {
-            if (LOGGER.isLoggable(java.util.logging.Level.WARNING)) {
-                LOGGER.warning(String.format("[PointService] User not found for publicKey: %s", publicKey));
-            }
-            throw new NotFoundException();
+            throw rejection(publicKey);
         }
-        String today = LocalDate.now().toString();
+        stats.pointsAdded(1);
         if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
-            LOGGER.info(String.format("[PointService] User %s, today: %s, user.pointsDate: %s, user.pointsToday: %d",
-                    publicKey, today, user.getPointsDate(), user.getPointsToday()));
+            LOGGER.info(String.format(
+                    "[PointService] Updated points: %d, pointsToday: %d, iconPointsToday: %d for user: %s",
+                    user.getPoints(), user.getPointsToday(), user.getIconPointsToday(), publicKey));
         }
-        // Note: Daily points reset is now handled globally in LoginService when first
-        // user logs in
-        // Individual users no longer reset their own points here
-        if (user.getPointsToday() >= MAX_POINTS_PER_DAY) {
+        return user;
+    }
+
+    /**
+     * The wallets collection; the concurrency check points it at a scratch
+     * collection.
+     */
+    MongoCollection<User> users() {
+        return User.mongoCollection();
+    }
+
+    /**
+     * Matches the wallet only while both daily caps still have room, so the
+     * check and the increment happen in one atomic server-side update.
+     */
+    static Bson capFilter(String publicKey) {
+        return Filters.and(
+                Filters.eq("publicKey", publicKey),
+                Filters.lt("pointsToday", MAX_POINTS_PER_DAY),
+                Filters.lt("iconPointsToday", MAX_ICON_POINTS_PER_DAY));
+    }
+
+    /**
+     * Works out why the capped update matched nothing. Only runs on the
+     * rejection path, so successful clicks stay a single round trip.
+     */
+    private RuntimeException rejection(String publicKey) {
+        User user = users().find(Filters.eq("publicKey", publicKey)).first();
+        if (user == null) {
             if (LOGGER.isLoggable(java.util.logging.Level.WARNING)) {
-                LOGGER.warning(String.format("[PointService] Daily limit reached for user: %s", publicKey));
+                LOGGER.warning(String.format("[PointService] User not found for publicKey: %s", publicKey));
             }
-            throw new BadRequestException("Daily limit reached");
+            return new NotFoundException();
         }
-        if (user.getIconPointsToday() >= MAX_ICON_POINTS_PER_DAY) {
+        if (user.getPointsToday() >= MAX_POINTS_PER_DAY) {
             if (LOGGER.isLoggable(java.util.logging.Level.WARNING)) {
-                LOGGER.warning(
-                        String.format("[PointService] Daily icon limit reached for user: %s", publicKey));
+                LOGGER.warning(String.format("[PointService] Daily limit reached for user: %s", publicKey));
             }
-            throw new BadRequestException("Daily icon limit reached");
+            return new BadRequestException("Daily limit reached");
         }
-        user.setPoints(user.getPoints() + 1);
-        user.setPointsToday(user.getPointsToday() + 1);
-        user.setIconPointsToday(user.getIconPointsToday() + 1);
-        user.persistOrUpdate();
-        if (LOGGER.isLoggable(java.util.logging.Level.INFO)) {
-            LOGGER.info(String.format(
-                    "[PointService] Updated points: %d, pointsToday: %d, iconPointsToday: %d for user: %s",
-                    user.getPoints(), user.getPointsToday(), user.getIconPointsToday(), publicKey));
+        if (LOGGER.isLoggable(java.util.logging.Level.WARNING)) {
+            LOGGER.warning(String.format("[PointService] Daily icon limit reached for user: %s", publicKey));
         }
-        return user;
+        return new BadRequestException("Daily icon limit reached");
     }
 }
@@ -1,8 +1,12 @@
 package com.primos.service;
 
 import java.time.LocalDate;
-import java.util.List;
 
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import com.primos.model.JobRun;
 import com.primos.model.User;
 import java.util.logging.Logger;
 
@@ -12,21 +16,34 @@ import jakarta.enterprise.context.ApplicationScoped;
 @ApplicationScoped
 public class PointsResetJob {
     private static final Logger LOG = Logger.getLogger(PointsResetJob.class.getName());
+    static final String JOB_NAME = "pointsReset";
 
+    /**
+     * Zeroes the daily counters of every user whose {@code pointsDate} is not
+     * today with one server-side {@code updateMany}, then records the affected
+     * count and duration in the {@code jobRuns} collection.
+     */
     @SuppressWarnings("unused")
     @Scheduled(cron = "0 0 10 * * ?")
     void resetDailyPoints() {
         String today = LocalDate.now().toString();
-        List<User> users = User.listAll();
-        for (User user : users) {
-            if (!today.equals(user.getPointsDate())) {
-                user.setPointsToday(0);
-                user.setIconPointsToday(0);
-                user.setHolderPointsToday(0);
-                user.setPointsDate(today);
-                user.persistOrUpdate();
-            }
-        }
-        LOG.info("Reset daily points for all users");
+        long started = System.currentTimeMillis();
+        UpdateResult result = User.mongoCollection().updateMany(
+                Filters.ne("pointsDate", today),
+                Updates.combine(
+                        Updates.set("pointsToday", 0),
+                        Updates.set("iconPointsToday", 0),
+                        Updates.set("holderPointsToday", 0),
+                        Updates.set("pointsDate", today)));
+        long duration = System.currentTimeMillis() - started;
+
+        JobRun.mongoCollection().updateOne(
+                Filters.and(Filters.eq("name", JOB_NAME), Filters.eq("runDate", today)),
+                Updates.combine(
+                        Updates.inc("affected", result.getModifiedCount()),
+                        Updates.set("durationMillis", duration),
+                        Updates.set("completedAt", System.currentTimeMillis())),
+                new UpdateOptions().upsert(true));
+        LOG.info(String.format("Reset daily points for %d users in %d ms", result.getModifiedCount(), duration));
     }
 }
@@ -1,5 +1,8 @@
 package com.primos.service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import com.primos.model.Primo3D;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -13,19 +16,26 @@ public class Primo3DService {
     @Inject
     NotificationService notifications;
 
-    public Primo3D create(String publicKey, Primo3D primo) {
+    /**
+     * Starts a render for the Primo unless one already exists. The Meshy call
+     * does not hold the request thread; the job is stored once Meshy answers.
+     */
+    public CompletionStage<Primo3D> create(String publicKey, Primo3D primo) {
         Primo3D existing = Primo3D.find("tokenAddress", primo.getTokenAddress()).firstResult();
         if (existing != null) {
-            return existing;
-        }
-        String job = meshy.startRender(primo.getImage());
-        primo.setJobId(job);
-        primo.setStatus(job == null ? "ERROR" : "IN_PROGRESS");
-        primo.persist();
-        if (publicKey != null) {
-            notifications.add(publicKey, "3D rendering started for " + primo.getName());
+            return CompletableFuture.completedFuture(existing);
         }
-        return primo;
+        // Persisting is blocking, so it runs on a virtual thread rather than the HTTP client's pool
+        return meshy.startRender(primo.getImage()).thenApplyAsync(job -> {
+            primo.setJobId(job);
+            primo.setStatus(job == null ? "ERROR" : "IN_PROGRESS");
+            primo.setRequestedBy(publicKey);
+            primo.persist();
+            if (publicKey != null) {
+                notifications.add(publicKey, "3D rendering started for " + primo.getName());
+            }
+            return primo;
+        }, task -> Thread.ofVirtual().name("primo3d-create").start(task));
     }
 
     public void updateStatus(Primo3D primo) {
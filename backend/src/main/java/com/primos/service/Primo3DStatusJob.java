@@ -17,7 +17,8 @@ public class Primo3DStatusJob {
         for (Primo3D p : jobs) {
             primoService.updateStatus(p);
             if ("COMPLETED".equalsIgnoreCase(p.getStatus()) && p.getStlUrl() != null) {
-                notifications.add(p.getTokenAddress(), "3D render completed for " + p.getName());
+                String wallet = p.getRequestedBy() != null ? p.getRequestedBy() : p.getTokenAddress();
+                notifications.add(wallet, "3D render completed for " + p.getName());
             }
         }
     }
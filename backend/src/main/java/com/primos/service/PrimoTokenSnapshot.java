@@ -0,0 +1,55 @@
+package com.primos.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.primos.http.ContentHash;
+import com.primos.model.PrimoToken;
+
+/**
+ * Immutable, pre-sorted view of the {@code primoTokens} collection published
+ * after each discovery run. The full list is pre-serialized so
+ * {@code GET /api/primo-tokens} can write it without touching MongoDB or
+ * Jackson, and the {@link #etag()} lets clients revalidate with a 304.
+ *
+ * @param byHolderCount tokens ordered by holder count, most held first
+ * @param byPriceChange tokens with a 24h change (highest first) followed by
+ *                      the rest ordered by holder count
+ * @param json          {@code byHolderCount} serialized as a JSON array
+ * @param etag          strong validator derived from the serialized content
+ * @param refreshedAt   epoch millis of the discovery run that produced the data
+ */
+public record PrimoTokenSnapshot(List<PrimoToken> byHolderCount, List<PrimoToken> byPriceChange, byte[] json,
+        String etag, long refreshedAt) {
+
+    static final Comparator<PrimoToken> BY_HOLDER_COUNT = Comparator.comparingInt(PrimoToken::getHolderCount)
+            .reversed();
+
+    public static PrimoTokenSnapshot of(List<PrimoToken> tokens, long refreshedAt, ObjectMapper mapper)
+            throws JsonProcessingException {
+        List<PrimoToken> byHolderCount = tokens.stream().sorted(BY_HOLDER_COUNT).toList();
+
+        List<PrimoToken> byPriceChange = new ArrayList<>(tokens.size());
+        tokens.stream()
+                .filter(token -> token.getPriceChange24h() != null)
+                .sorted(Comparator.comparingDouble(PrimoToken::getPriceChange24h).reversed())
+                .forEach(byPriceChange::add);
+        byHolderCount.stream()
+                .filter(token -> token.getPriceChange24h() == null)
+                .forEach(byPriceChange::add);
+
+        byte[] json = mapper.writeValueAsBytes(byHolderCount);
+        return new PrimoTokenSnapshot(byHolderCount, List.copyOf(byPriceChange), json, ContentHash.of(json),
+                refreshedAt);
+    }
+
+    /**
+     * Returns the first {@code limit} tokens by 24h price change.
+     */
+    public List<PrimoToken> topByPriceChange(int limit) {
+        return byPriceChange.subList(0, Math.min(limit, byPriceChange.size()));
+    }
+}
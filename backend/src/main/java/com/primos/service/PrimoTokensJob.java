@@ -0,0 +1,19 @@
+package com.primos.service;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Rebuilds the Primo token snapshot in the background so
+ * {@code /api/primo-tokens} never waits on wallet discovery.
+ */
+@ApplicationScoped
+public class PrimoTokensJob {
+    @Inject PrimoTokensService service;
+
+    @Scheduled(every = "30m", delayed = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        service.refresh();
+    }
+}
@@ -2,13 +2,29 @@ package com.primos.service;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.primos.config.Env;
+import com.primos.http.OutboundHttpClient;
 import com.primos.model.PrimoToken;
 import com.primos.model.User;
 
@@ -18,10 +34,20 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class PrimoTokensService {
     private static final Logger LOG = Logger.getLogger(PrimoTokensService.class.getName());
+    private static final int DISCOVERY_CONCURRENCY = Env.positiveInt("PRIMO_DISCOVERY_CONCURRENCY", 8);
+    private static final long DISCOVERY_TIMEOUT_SECONDS = Env.positiveInt("PRIMO_DISCOVERY_TIMEOUT_SECONDS", 300);
+    private static final long STALE_MILLIS =
+            TimeUnit.MINUTES.toMillis(Env.positiveInt("PRIMO_TOKENS_STALE_MINUTES", 45));
 
     @Inject
     HeliusService heliusService;
 
+    @Inject
+    ObjectMapper objectMapper;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile PrimoTokenSnapshot snapshot;
+
     /**
      * Updates and returns the list of all tokens held by Primo members.
      * This method discovers tokens from Primo wallets and stores them separately
@@ -44,96 +70,29 @@ public class PrimoTokensService {
             final int totalHolders = primoHolders.size();
             LOG.info(String.format("Found %d Primo holders, discovering their token holdings...", totalHolders));
 
-            Map<String, Integer> tokenHolderCount = new HashMap<>();
-            Map<String, List<String>> tokenHolders = new HashMap<>(); // Track which holders have each token
-            Map<String, List<PrimoToken.HolderInfo>> tokenHolderDetails = new HashMap<>(); // Track detailed holder info
-            Map<String, Map<String, Object>> tokenMetadata = new HashMap<>(); // Store enhanced metadata
-            Map<String, User> holderUserMap = new HashMap<>(); // Cache for holder user data
-            int processedHolders = 0;
-            int maxHoldersToProcess = Math.min(50, primoHolders.size()); // Process up to 50 holders
-
-            // Process Primo holders to discover their token holdings
-            for (User holder : primoHolders) {
-                if (processedHolders >= maxHoldersToProcess) {
-                    break;
-                }
-
-                String holderAddress = holder.getPublicKey();
-                if (holderAddress == null || holderAddress.isEmpty()) {
-                    continue;
-                }
-
-                // Cache user data for later use
-                holderUserMap.put(holderAddress, holder);
-
-                try {
-                    LOG.info(String.format("Processing holder %d/%d: %s",
-                            processedHolders + 1, maxHoldersToProcess, holderAddress));
-
-                    // Get enhanced tokens for this holder using comprehensive API integration
-                    Map<String, Object> holderTokenData = heliusService.getEnhancedTokensForWallet(holderAddress);
-
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> holderTokens = (List<Map<String, Object>>) holderTokenData.get("tokens");
-
-                    if (holderTokens != null) {
-                        for (Map<String, Object> tokenData : holderTokens) {
-                            String mint = (String) tokenData.get("mint");
-                            if (mint != null && !mint.isEmpty()) {
-                                // Count holders for this token
-                                tokenHolderCount.put(mint, tokenHolderCount.getOrDefault(mint, 0) + 1);
-
-                                // Track which holders have this token
-                                tokenHolders.computeIfAbsent(mint, k -> new ArrayList<>()).add(holderAddress);
-
-                                // Create detailed holder info with PFP data
-                                PrimoToken.HolderInfo holderInfo = new PrimoToken.HolderInfo(
-                                        holderAddress,
-                                        holder.getPfp(),
-                                        holder.getDomain(),
-                                        true // All users in this context are Primos
-                                );
-                                tokenHolderDetails.computeIfAbsent(mint, k -> new ArrayList<>()).add(holderInfo);
-
-                                // Store the most complete metadata we've seen for this token
-                                if (!tokenMetadata.containsKey(mint) ||
-                                        isMoreCompleteMetadata(tokenData, tokenMetadata.get(mint))) {
-                                    tokenMetadata.put(mint, new HashMap<>(tokenData));
-                                }
-                            }
-                        }
-                    }
-
-                    processedHolders++;
-
-                    // Add delay to respect rate limits for multiple API calls
-                    if (processedHolders % 5 == 0) {
-                        LOG.info(String.format("Processed %d/%d holders, found %d unique tokens so far",
-                                processedHolders, maxHoldersToProcess, tokenHolderCount.size()));
-                        Thread.sleep(2000); // Longer delay for enhanced API calls
-                    }
-
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Primo token discovery interrupted", ie);
-                } catch (Exception e) {
-                    LOG.warning(String.format("Failed to fetch tokens for holder %s: %s", holderAddress,
-                            e.getMessage()));
-                }
-            }
+            Discovery discovery = discover(primoHolders);
+            Map<String, Integer> tokenHolderCount = discovery.holderCounts();
+            Map<String, List<String>> tokenHolders = discovery.holders();
+            Map<String, List<PrimoToken.HolderInfo>> tokenHolderDetails = discovery.holderDetails();
+            Map<String, Map<String, Object>> tokenMetadata = discovery.metadata();
 
             LOG.info(String.format("Discovery completed: Found %d unique tokens from %d holders",
-                    tokenHolderCount.size(), processedHolders));
+                    tokenHolderCount.size(), discovery.processedHolders()));
 
-            // Update database with discovered tokens
+            // Update database with discovered tokens, loading the stored ones in one query
             long now = System.currentTimeMillis();
+            Map<String, PrimoToken> stored = new HashMap<>();
+            for (PrimoToken token : PrimoToken.<PrimoToken>listAll()) {
+                stored.put(token.getContract(), token);
+            }
+            List<PrimoToken> updated = new ArrayList<>(tokenHolderCount.size());
 
             for (Map.Entry<String, Integer> entry : tokenHolderCount.entrySet()) {
                 String tokenContract = entry.getKey();
                 int holderCount = entry.getValue();
 
                 // Find existing token or create new one
-                PrimoToken token = PrimoToken.find("contract", tokenContract).firstResult();
+                PrimoToken token = stored.get(tokenContract);
                 if (token == null) {
                     token = new PrimoToken();
                     token.setContract(tokenContract);
@@ -171,35 +130,210 @@ public class PrimoTokensService {
                     }
                 }
 
-                token.persistOrUpdate();
+                updated.add(token);
+            }
+            if (!updated.isEmpty()) {
+                PrimoToken.persistOrUpdate(updated);
             }
 
             // Remove tokens that are no longer held by any Primo
             long cutoffTime = now - (24 * 60 * 60 * 1000); // 24 hours ago
-            List<PrimoToken> existing = PrimoToken.listAll();
-            for (PrimoToken token : existing) {
+            List<String> removed = new ArrayList<>();
+            for (PrimoToken token : stored.values()) {
                 if (!tokenHolderCount.containsKey(token.getContract()) && token.getUpdatedAt() < cutoffTime) {
                     LOG.info(String.format("Removing token %s - no longer held by Primos", token.getContract()));
-                    token.delete();
+                    removed.add(token.getContract());
                 }
             }
+            if (!removed.isEmpty()) {
+                PrimoToken.delete("contract in ?1", removed);
+            }
 
-            // Return all current tokens sorted by holder count
-            List<PrimoToken> result = PrimoToken.<PrimoToken>listAll().stream()
-                    .sorted(Comparator.comparingInt(PrimoToken::getHolderCount).reversed())
-                    .collect(Collectors.toList());
+            // Publish the fresh snapshot and return its holder-count ordering
+            PrimoTokenSnapshot published = publish(PrimoToken.listAll(), now);
 
-            LOG.info(String.format("Primo token discovery complete: %d tokens in database", result.size()));
-            return result;
+            LOG.info(String.format("Primo token discovery complete: %d tokens in database",
+                    published.byHolderCount().size()));
+            return published.byHolderCount();
 
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Primo token discovery interrupted", ie);
         } catch (Exception e) {
-            LOG.severe("Failed to update Primo tokens: " + e.getMessage());
-            e.printStackTrace();
+            LOG.log(Level.SEVERE, "Failed to update Primo tokens", e);
             // Return existing tokens from database on error
-            return PrimoToken.<PrimoToken>listAll().stream()
-                    .sorted(Comparator.comparingInt(PrimoToken::getHolderCount).reversed())
-                    .collect(Collectors.toList());
+            return loadSnapshot().byHolderCount();
+        }
+    }
+
+    /**
+     * Returns the last published snapshot without touching upstream APIs. The
+     * first call after startup builds it from the stored tokens; once it is
+     * older than {@code PRIMO_TOKENS_STALE_MINUTES} the stale copy is still
+     * served while a background refresh rebuilds it.
+     */
+    public PrimoTokenSnapshot currentSnapshot() {
+        PrimoTokenSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = loadSnapshot();
+                }
+            }
         }
+        if (System.currentTimeMillis() - current.refreshedAt() > STALE_MILLIS) {
+            refreshInBackground();
+        }
+        return current;
+    }
+
+    /**
+     * Starts a discovery run on a virtual thread unless one is already running.
+     *
+     * @return {@code true} if a run was started
+     */
+    public boolean refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofVirtual().name("primo-token-refresh").start(() -> {
+            try {
+                updateAndGetPrimoTokens();
+            } catch (Exception e) {
+                LOG.warning("Background Primo token refresh failed: " + e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Runs discovery on the calling thread unless a run is already in progress.
+     */
+    void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            LOG.info("Primo token discovery already running, skipping scheduled refresh");
+            return;
+        }
+        try {
+            updateAndGetPrimoTokens();
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private PrimoTokenSnapshot loadSnapshot() {
+        List<PrimoToken> stored = PrimoToken.listAll();
+        long refreshedAt = stored.stream().mapToLong(PrimoToken::getUpdatedAt).max().orElse(0L);
+        return publish(stored, refreshedAt);
+    }
+
+    private PrimoTokenSnapshot publish(List<PrimoToken> tokens, long refreshedAt) {
+        try {
+            PrimoTokenSnapshot next = PrimoTokenSnapshot.of(tokens, refreshedAt, objectMapper);
+            snapshot = next;
+            return next;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize Primo token snapshot", e);
+        }
+    }
+
+    /**
+     * Per-token results folded together from every holder's wallet.
+     */
+    record Discovery(Map<String, Integer> holderCounts, Map<String, List<String>> holders,
+            Map<String, List<PrimoToken.HolderInfo>> holderDetails, Map<String, Map<String, Object>> metadata,
+            int processedHolders) {
+    }
+
+    /**
+     * Fetches every holder's wallet concurrently on virtual threads. At most
+     * {@code PRIMO_DISCOVERY_CONCURRENCY} wallets are in flight at once and
+     * upstream pacing is left to the rate limiter in {@link OutboundHttpClient};
+     * holders not finished within {@code PRIMO_DISCOVERY_TIMEOUT_SECONDS} are
+     * interrupted, which cancels their pending Helius calls, and skipped for
+     * this run.
+     */
+    Discovery discover(List<User> primoHolders) throws InterruptedException {
+        ConcurrentMap<String, AtomicInteger> holderCounts = new ConcurrentHashMap<>();
+        ConcurrentMap<String, Queue<String>> holders = new ConcurrentHashMap<>();
+        ConcurrentMap<String, Queue<PrimoToken.HolderInfo>> holderDetails = new ConcurrentHashMap<>();
+        ConcurrentMap<String, Map<String, Object>> metadata = new ConcurrentHashMap<>();
+        AtomicInteger processed = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(DISCOVERY_CONCURRENCY);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (User holder : primoHolders) {
+            String holderAddress = holder.getPublicKey();
+            if (holderAddress == null || holderAddress.isEmpty() || !seen.add(holderAddress)) {
+                continue;
+            }
+            tasks.add(() -> {
+                inFlight.acquire();
+                try {
+                    Map<String, Object> holderTokenData = heliusService.getEnhancedTokensForWallet(holderAddress);
+                    if (Thread.currentThread().isInterrupted()) {
+                        // Timed out mid-fetch; the partial result is dropped
+                        return null;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> holderTokens = (List<Map<String, Object>>) holderTokenData
+                            .get("tokens");
+                    if (holderTokens != null) {
+                        PrimoToken.HolderInfo holderInfo = new PrimoToken.HolderInfo(
+                                holderAddress,
+                                holder.getPfp(),
+                                holder.getDomain(),
+                                true // All users in this context are Primos
+                        );
+                        for (Map<String, Object> tokenData : holderTokens) {
+                            String mint = (String) tokenData.get("mint");
+                            if (mint == null || mint.isEmpty()) {
+                                continue;
+                            }
+                            holderCounts.computeIfAbsent(mint, k -> new AtomicInteger()).incrementAndGet();
+                            holders.computeIfAbsent(mint, k -> new ConcurrentLinkedQueue<>()).add(holderAddress);
+                            holderDetails.computeIfAbsent(mint, k -> new ConcurrentLinkedQueue<>()).add(holderInfo);
+                            // Keep the most complete metadata we've seen for this token
+                            metadata.merge(mint, new HashMap<>(tokenData),
+                                    (current, candidate) -> isMoreCompleteMetadata(candidate, current) ? candidate
+                                            : current);
+                        }
+                    }
+                    int done = processed.incrementAndGet();
+                    if (done % 25 == 0) {
+                        LOG.info(String.format("Processed %d/%d holders, found %d unique tokens so far",
+                                done, primoHolders.size(), holderCounts.size()));
+                    }
+                } catch (Exception e) {
+                    LOG.warning(String.format("Failed to fetch tokens for holder %s: %s", holderAddress,
+                            e.getMessage()));
+                } finally {
+                    inFlight.release();
+                }
+                return null;
+            });
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Void>> futures = executor.invokeAll(tasks, DISCOVERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            long timedOut = futures.stream().filter(Future::isCancelled).count();
+            if (timedOut > 0) {
+                LOG.warning(String.format("Token discovery timed out for %d of %d holders", timedOut, tasks.size()));
+            }
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        holderCounts.forEach((mint, count) -> counts.put(mint, count.get()));
+        Map<String, List<String>> holderLists = new HashMap<>();
+        holders.forEach((mint, list) -> holderLists.put(mint, new ArrayList<>(list)));
+        Map<String, List<PrimoToken.HolderInfo>> detailLists = new HashMap<>();
+        holderDetails.forEach((mint, list) -> detailLists.put(mint, new ArrayList<>(list)));
+        return new Discovery(counts, holderLists, detailLists, new HashMap<>(metadata), processed.get());
     }
 
     /**
@@ -240,19 +374,15 @@ public class PrimoTokensService {
     }
 
     /**
-     * Discovers and adds Primo tokens, returning a summary message.
-     * This method wraps updateAndGetPrimoTokens() to provide a string result
-     * suitable for API responses.
+     * Starts a Primo token discovery in the background, returning a summary
+     * message suitable for API responses. The refreshed tokens are served by
+     * {@link #currentSnapshot()} once the run finishes.
      *
-     * @return A summary message of the discovery operation
+     * @return A summary message saying whether a run was started
      */
     public String discoverAndAddPrimoTokens() {
-        try {
-            List<PrimoToken> tokens = updateAndGetPrimoTokens();
-            return String.format("Successfully discovered and updated %d Primo tokens", tokens.size());
-        } catch (Exception e) {
-            LOG.severe("Error during Primo token discovery: " + e.getMessage());
-            throw new RuntimeException("Failed to discover Primo tokens: " + e.getMessage(), e);
-        }
+        return refreshInBackground()
+                ? "Primo token discovery started"
+                : "Primo token discovery already in progress";
     }
 }
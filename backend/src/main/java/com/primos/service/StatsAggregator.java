@@ -0,0 +1,165 @@
+package com.primos.service;
+
+import java.io.StringReader;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.Upstream;
+import com.primos.model.BetaCode;
+import com.primos.model.User;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonReader;
+
+/**
+ * Running totals behind the admin dashboard. Services that create wallets,
+ * award points, flip holder status or touch beta codes bump the counters as
+ * they go, and a periodic aggregation over the users collection reconciles
+ * any drift (bulk jobs simply trigger a reconcile when they finish). Reading
+ * the totals never touches MongoDB or an upstream API.
+ */
+@ApplicationScoped
+public class StatsAggregator {
+    private static final Logger LOG = Logger.getLogger(StatsAggregator.class.getName());
+    private static final String COLLECTION = System.getenv().getOrDefault("REACT_APP_PRIMOS_COLLECTION", "primos");
+
+    public record Totals(long totalWallets, long totalPoints, long primoHolders, long betaCodes,
+            long betaCodesRedeemed, long primosHeld, long walletsWithPrimos, long floorPrice) {
+    }
+
+    @Inject
+    OutboundHttpClient http;
+
+    private final AtomicLong totalWallets = new AtomicLong();
+    private final AtomicLong totalPoints = new AtomicLong();
+    private final AtomicLong primoHolders = new AtomicLong();
+    private final AtomicLong betaCodes = new AtomicLong();
+    private final AtomicLong betaCodesRedeemed = new AtomicLong();
+    private final AtomicLong primosHeld = new AtomicLong();
+    private final AtomicLong walletsWithPrimos = new AtomicLong();
+    private final AtomicLong floorPrice = new AtomicLong();
+    private volatile boolean reconciled;
+
+    public Totals totals() {
+        if (!reconciled) {
+            synchronized (this) {
+                if (!reconciled) {
+                    reconcile();
+                }
+            }
+        }
+        return new Totals(totalWallets.get(), totalPoints.get(), primoHolders.get(), betaCodes.get(),
+                betaCodesRedeemed.get(), primosHeld.get(), walletsWithPrimos.get(), floorPrice.get());
+    }
+
+    public void walletCreated(boolean holder) {
+        totalWallets.incrementAndGet();
+        if (holder) {
+            primoHolders.incrementAndGet();
+        }
+    }
+
+    public void pointsAdded(long points) {
+        totalPoints.addAndGet(points);
+    }
+
+    public void holderChanged(boolean wasHolder, boolean isHolder) {
+        if (wasHolder != isHolder) {
+            primoHolders.addAndGet(isHolder ? 1 : -1);
+        }
+    }
+
+    public void nftCountChanged(int previous, int current) {
+        primosHeld.addAndGet((long) current - previous);
+        if ((previous > 0) != (current > 0)) {
+            walletsWithPrimos.addAndGet(current > 0 ? 1 : -1);
+        }
+    }
+
+    public void betaCodeCreated() {
+        betaCodes.incrementAndGet();
+    }
+
+    public void betaCodeRedeemed() {
+        betaCodesRedeemed.incrementAndGet();
+    }
+
+    /**
+     * Recomputes every total with one aggregation over the users collection
+     * plus two beta code counts, and refreshes the Magic Eden floor price.
+     */
+    @Scheduled(every = "10m", delayed = "30s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public synchronized void reconcile() {
+        long started = System.currentTimeMillis();
+        Document totals = User.mongoCollection().aggregate(List.of(Aggregates.group(null,
+                Accumulators.sum("wallets", 1),
+                Accumulators.sum("points", "$points"),
+                Accumulators.sum("holders", new Document("$cond", List.of("$primoHolder", 1, 0))),
+                Accumulators.sum("primosHeld", "$nftCount"),
+                Accumulators.sum("walletsWithPrimos", new Document("$cond",
+                        List.of(new Document("$gt", List.of("$nftCount", 0)), 1, 0))))), Document.class)
+                .first();
+        if (totals != null) {
+            totalWallets.set(number(totals, "wallets"));
+            totalPoints.set(number(totals, "points"));
+            primoHolders.set(number(totals, "holders"));
+            primosHeld.set(number(totals, "primosHeld"));
+            walletsWithPrimos.set(number(totals, "walletsWithPrimos"));
+        } else {
+            totalWallets.set(0);
+            totalPoints.set(0);
+            primoHolders.set(0);
+            primosHeld.set(0);
+            walletsWithPrimos.set(0);
+        }
+        betaCodes.set(BetaCode.count());
+        betaCodesRedeemed.set(BetaCode.count("redeemed", true));
+        long floor = fetchFloorPrice();
+        if (floor > 0) {
+            floorPrice.set(floor);
+        }
+        reconciled = true;
+        LOG.fine(() -> String.format("Reconciled admin stats in %d ms", System.currentTimeMillis() - started));
+    }
+
+    private static long number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private long fetchFloorPrice() {
+        try {
+            String url = String.format("https://api-mainnet.magiceden.dev/v2/collections/%s/stats", COLLECTION);
+            HttpRequest req = http.request(Upstream.MAGIC_EDEN, url).build();
+            HttpResponse<String> resp = http.send(Upstream.MAGIC_EDEN, req, HttpResponse.BodyHandlers.ofString());
+            if (resp.statusCode() != 200) {
+                return 0L;
+            }
+            try (JsonReader reader = Json.createReader(new StringReader(resp.body()))) {
+                var obj = reader.readObject();
+                var num = obj.get("floorPrice");
+                if (num == null || num.getValueType() != jakarta.json.JsonValue.ValueType.NUMBER) {
+                    return 0L;
+                }
+                return obj.getJsonNumber("floorPrice").longValue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0L;
+        } catch (Exception e) {
+            LOG.warning("Failed to fetch floor price: " + e.getMessage());
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.primos.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind buffer for per-(tokenId, wallet) toggles such as likes and
+ * reactions. A toggle only updates memory, so a burst of clicks on one token
+ * collapses to the final state of each wallet, which a background thread
+ * hands to the writer every {@code flushMillis} as one ordered batch.
+ * <p>
+ * The state of a wallet is {@code null} for "no reaction" or a value of
+ * {@code T}. Each pending change remembers the persisted state it started
+ * from, so callers can overlay both the wallet's latest state and the net
+ * change per value on top of what MongoDB returns.
+ * <p>
+ * A flush has two steps. {@code store} writes the batch while reads go on;
+ * they still overlay the batch from the buffer, which is right as long as
+ * what they read from MongoDB (e.g. counters) does not reflect it yet.
+ * {@code publish} then makes the batch visible to those reads, and runs with
+ * the buffer cleared under a lock that reads wrapped in {@link #read} share,
+ * so a batch is never counted both in MongoDB and in the buffer.
+ */
+public class ToggleBuffer<T> {
+    private static final Logger LOG = Logger.getLogger(ToggleBuffer.class.getName());
+
+    public record Change<T>(T before, T after) {
+    }
+
+    public record Pending<T>(String tokenId, String publicKey, Change<T> change) {
+    }
+
+    /**
+     * One flush: the toggles to write, plus the tokens whose derived data
+     * (e.g. counters) may be off because an earlier batch touching them failed
+     * part way, and so should be recomputed rather than adjusted.
+     */
+    public record Batch<T>(List<Pending<T>> toggles, Set<String> recount) {
+        boolean isEmpty() {
+            return toggles.isEmpty() && recount.isEmpty();
+        }
+    }
+
+    private final String name;
+    private final long flushMillis;
+    private final Consumer<Batch<T>> store;
+    private final Consumer<Batch<T>> publish;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // tokenId -> publicKey -> change; guarded by this
+    private Map<String, Map<String, Change<T>>> pending = new HashMap<>();
+    private Map<String, Map<String, Change<T>>> flushing = new HashMap<>();
+    private Set<String> recount = new HashSet<>();
+    private Set<String> flushingRecount = new HashSet<>();
+    // tokenId -> wallets whose state must be written even if unchanged; guarded by this
+    private Map<String, Set<String>> rewrite = new HashMap<>();
+    private long generation;
+    private ScheduledExecutorService timer;
+
+    /**
+     * A buffer whose whole write is visible to reads as it happens, so all of
+     * it runs in the publish step.
+     */
+    public ToggleBuffer(String name, long flushMillis, Consumer<Batch<T>> writer) {
+        this(name, flushMillis, batch -> {
+        }, writer);
+    }
+
+    public ToggleBuffer(String name, long flushMillis, Consumer<Batch<T>> store, Consumer<Batch<T>> publish) {
+        this.name = name;
+        this.flushMillis = flushMillis;
+        this.store = store;
+        this.publish = publish;
+    }
+
+    public synchronized void start() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, name + "-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the timer and writes whatever is still buffered.
+     */
+    public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = timer;
+            timer = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Toggles {@code clicked} for the wallet: clicking the current state
+     * clears it, anything else replaces it. {@code persisted} reads the stored
+     * state and is only called, outside any lock, for wallets not already in
+     * the buffer. Returns the new state.
+     */
+    public T toggle(String tokenId, String publicKey, T clicked, BiFunction<String, String, T> persisted) {
+        while (true) {
+            long seen;
+            T stored = null;
+            synchronized (this) {
+                seen = generation;
+            }
+            if (latest(tokenId, publicKey) == null) {
+                stored = persisted.apply(tokenId, publicKey);
+            }
+            synchronized (this) {
+                Change<T> latest = latest(tokenId, publicKey);
+                if (latest == null && seen != generation) {
+                    // A batch was written while we read; the stored state may be stale
+                    continue;
+                }
+                T current = latest != null ? latest.after() : stored;
+                T before = latest != null ? latest.before() : stored;
+                Change<T> flushingChange = flushing.getOrDefault(tokenId, Map.of()).get(publicKey);
+                if (flushingChange != null) {
+                    // The batch in flight will have stored its final state by the time we are written
+                    before = flushingChange.after();
+                }
+                T next = Objects.equals(current, clicked) ? null : clicked;
+                pending.computeIfAbsent(tokenId, k -> new HashMap<>()).put(publicKey, new Change<>(before, next));
+                return next;
+            }
+        }
+    }
+
+    /**
+     * The wallet's latest buffered change, or {@code null} when MongoDB holds
+     * its current state.
+     */
+    public synchronized Change<T> latest(String tokenId, String publicKey) {
+        Change<T> change = pending.getOrDefault(tokenId, Map.of()).get(publicKey);
+        return change != null ? change : flushing.getOrDefault(tokenId, Map.of()).get(publicKey);
+    }
+
+    /**
+     * Net change per state for {@code tokenId} that MongoDB does not reflect
+     * yet, e.g. {@code {LIKE=+3, DISLIKE=-1}}.
+     */
+    public synchronized Map<T, Long> delta(String tokenId) {
+        Map<T, Long> delta = new HashMap<>();
+        for (Map<String, Map<String, Change<T>>> changes : List.of(flushing, pending)) {
+            for (Change<T> change : changes.getOrDefault(tokenId, Map.of()).values()) {
+                if (change.before() != null) {
+                    delta.merge(change.before(), -1L, Long::sum);
+                }
+                if (change.after() != null) {
+                    delta.merge(change.after(), 1L, Long::sum);
+                }
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Runs a read of MongoDB plus buffer overlay without a batch being
+     * written in between.
+     */
+    public <R> R read(Supplier<R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands everything buffered to the store and publish steps. If either
+     * throws, the batch is merged back into the buffer and retried on the next
+     * flush with its tokens marked for recount, so it must be safe to apply
+     * twice. A failed batch may have been written in part, so the retry
+     * writes the final state of every one of its wallets, even those that
+     * toggled back to where they started.
+     */
+    public void flush() {
+        Batch<T> batch = drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+        boolean written = false;
+        try {
+            store.accept(batch);
+            written = true;
+        } catch (RuntimeException e) {
+            LOG.warning(String.format("Failed to store %d %s toggles: %s", batch.toggles().size(), name,
+                    e.getMessage()));
+        }
+        lock.writeLock().lock();
+        try {
+            if (written) {
+                publish.accept(batch);
+            }
+        } catch (RuntimeException e) {
+            written = false;
+            LOG.warning(String.format("Failed to publish %d %s toggles: %s", batch.toggles().size(), name,
+                    e.getMessage()));
+        } finally {
+            finish(written);
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the buffered changes into the in-flight batch, dropping wallets
+     * that toggled back to where they started unless a failed batch left
+     * their stored state in doubt.
+     */
+    synchronized Batch<T> drain() {
+        List<Pending<T>> batch = new ArrayList<>();
+        Map<String, Map<String, Change<T>>> draining = pending;
+        pending = new HashMap<>();
+        for (Map.Entry<String, Map<String, Change<T>>> token : draining.entrySet()) {
+            Set<String> inDoubt = rewrite.getOrDefault(token.getKey(), Set.of());
+            token.getValue().entrySet().removeIf(entry -> !inDoubt.contains(entry.getKey())
+                    && Objects.equals(entry.getValue().before(), entry.getValue().after()));
+            token.getValue().forEach((publicKey, change) -> batch.add(new Pending<>(token.getKey(), publicKey,
+                    change)));
+        }
+        draining.values().removeIf(Map::isEmpty);
+        rewrite = new HashMap<>();
+        flushing = draining;
+        flushingRecount = recount;
+        recount = new HashSet<>();
+        return new Batch<>(batch, flushingRecount);
+    }
+
+    synchronized void finish(boolean written) {
+        if (written) {
+            generation++;
+        } else {
+            // Newer toggles keep their state but start from where the failed batch started
+            flushing.forEach((tokenId, changes) -> changes.forEach((publicKey, change) -> pending
+                    .computeIfAbsent(tokenId, k -> new HashMap<>())
+                    .merge(publicKey, change, (newer, failed) -> new Change<>(failed.before(), newer.after()))));
+            flushing.forEach((tokenId, changes) -> rewrite.computeIfAbsent(tokenId, k -> new HashSet<>())
+                    .addAll(changes.keySet()));
+            recount.addAll(flushing.keySet());
+            recount.addAll(flushingRecount);
+        }
+        flushing = new HashMap<>();
+        flushingRecount = new HashSet<>();
+    }
+}
@@ -0,0 +1,41 @@
+package com.primos.service;
+
+import java.util.logging.Logger;
+
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.primos.model.TokenReaction;
+import com.primos.model.TokenReactionCount;
+
+@Startup
+@ApplicationScoped
+public class TokenReactionIndexesInitializer {
+    private static final Logger LOG = Logger.getLogger(TokenReactionIndexesInitializer.class.getName());
+
+    @Inject
+    TokenReactionService service;
+
+    @PostConstruct
+    void initIndexes() {
+        try {
+            TokenReaction.mongoCollection()
+                    .createIndex(Indexes.compoundIndex(Indexes.ascending("tokenId"), Indexes.ascending("publicKey")),
+                            new IndexOptions().unique(true));
+        } catch (MongoException e) {
+            // Existing duplicate reactions block the unique index until they are cleaned up
+            LOG.warning("Could not create unique tokenReactions index: " + e.getMessage());
+        }
+        TokenReactionCount.mongoCollection()
+                .createIndex(Indexes.ascending("tokenId"), new IndexOptions().unique(true));
+        if (TokenReactionCount.count() == 0 && TokenReaction.count() > 0) {
+            LOG.info("Seeding tokenReactionCounts from existing reactions");
+            service.rebuildCounts();
+        }
+    }
+}
@@ -1,53 +1,288 @@
 package com.primos.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BsonField;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.MergeOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.primos.config.Env;
 import com.primos.model.TokenReaction;
 import com.primos.model.TokenReaction.ReactionType;
+import com.primos.model.TokenReactionCount;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.transaction.Transactional;
 
+/**
+ * Token likes/dislikes. Totals live in one {@link TokenReactionCount} document
+ * per token and are cached in process for {@code REACTION_COUNT_TTL_SECONDS},
+ * so reading a token's totals is one lookup by {@code tokenId}, or none on a
+ * cache hit.
+ * <p>
+ * Toggles go through a {@link ToggleBuffer}: bursts of clicks collapse to each
+ * wallet's final reaction, which is written every
+ * {@code REACTION_FLUSH_MILLIS} with ordered bulk writes while reads carry on,
+ * after which the net change per token is applied to the counters with
+ * {@code $inc}. Reads add the buffered changes on top of what MongoDB holds.
+ */
 @ApplicationScoped
 public class TokenReactionService {
+    private static final long CACHE_TTL_MS =
+            TimeUnit.SECONDS.toMillis(Env.positiveInt("REACTION_COUNT_TTL_SECONDS", 30));
+    private static final long FLUSH_MS = Env.positiveInt("REACTION_FLUSH_MILLIS", 250);
+    private static final int BATCH_SIZE = 500;
+
+    public record ReactionCounts(long likes, long dislikes) {
+        static final ReactionCounts NONE = new ReactionCounts(0, 0);
+
+        ReactionCounts plus(Map<ReactionType, Long> delta) {
+            if (delta.isEmpty()) {
+                return this;
+            }
+            return new ReactionCounts(likes + delta.getOrDefault(ReactionType.LIKE, 0L),
+                    dislikes + delta.getOrDefault(ReactionType.DISLIKE, 0L));
+        }
+    }
+
+    private final TtlCache<String, ReactionCounts> counts = new TtlCache<>(CACHE_TTL_MS, CACHE_TTL_MS, 10_000);
+    private ToggleBuffer<ReactionType> buffer;
+
+    @PostConstruct
+    void start() {
+        buffer = new ToggleBuffer<>("token-reactions", FLUSH_MS, this::writeReactions, this::writeCounts);
+        buffer.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        buffer.close();
+    }
+
+    public ReactionCounts counts(String tokenId) {
+        return buffer.read(() -> counts.get(tokenId, id -> CompletableFuture.completedFuture(loadCounts(id)))
+                .join().plus(buffer.delta(tokenId)));
+    }
 
-    public long countLikes(String tokenId) {
-        return TokenReaction.count("tokenId = ?1 and type = ?2", tokenId, ReactionType.LIKE);
+    /**
+     * Totals for many tokens at once: cached tokens cost nothing and the rest
+     * are read with a single {@code $in} query on the counters. Tokens nobody
+     * reacted to map to zero counts.
+     */
+    public Map<String, ReactionCounts> counts(Collection<String> tokenIds) {
+        return buffer.read(() -> {
+            Map<String, ReactionCounts> result = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String tokenId : tokenIds) {
+                ReactionCounts cached = counts.getIfPresent(tokenId);
+                if (cached != null) {
+                    result.put(tokenId, cached);
+                } else {
+                    missing.add(tokenId);
+                }
+            }
+            if (!missing.isEmpty()) {
+                for (TokenReactionCount count : TokenReactionCount.<TokenReactionCount>find(
+                        new Document("tokenId", new Document("$in", missing))).list()) {
+                    ReactionCounts loaded = toCounts(count);
+                    counts.put(count.getTokenId(), loaded);
+                    result.put(count.getTokenId(), loaded);
+                }
+                for (String tokenId : missing) {
+                    result.computeIfAbsent(tokenId, id -> {
+                        counts.put(id, ReactionCounts.NONE);
+                        return ReactionCounts.NONE;
+                    });
+                }
+            }
+            result.replaceAll((tokenId, total) -> total.plus(buffer.delta(tokenId)));
+            return result;
+        });
     }
 
-    public long countDislikes(String tokenId) {
-        return TokenReaction.count("tokenId = ?1 and type = ?2", tokenId, ReactionType.DISLIKE);
+    /**
+     * The wallet's reaction to each of {@code tokenIds} it has reacted to, in
+     * one {@code $in} query served by the (tokenId, publicKey) index.
+     */
+    public Map<String, ReactionType> getUserReactions(Collection<String> tokenIds, String publicKey) {
+        return buffer.read(() -> {
+            Map<String, ReactionType> result = new HashMap<>();
+            for (TokenReaction reaction : TokenReaction.<TokenReaction>find(
+                    new Document("tokenId", new Document("$in", tokenIds)).append("publicKey", publicKey)).list()) {
+                result.put(reaction.getTokenId(), reaction.getType());
+            }
+            for (String tokenId : tokenIds) {
+                ToggleBuffer.Change<ReactionType> buffered = buffer.latest(tokenId, publicKey);
+                if (buffered != null && buffered.after() != null) {
+                    result.put(tokenId, buffered.after());
+                } else if (buffered != null) {
+                    result.remove(tokenId);
+                }
+            }
+            return result;
+        });
     }
 
     public ReactionType getUserReaction(String tokenId, String publicKey) {
+        return buffer.read(() -> {
+            ToggleBuffer.Change<ReactionType> buffered = buffer.latest(tokenId, publicKey);
+            return buffered != null ? buffered.after() : storedReaction(tokenId, publicKey);
+        });
+    }
+
+    public ReactionType toggleReaction(String tokenId, String publicKey, ReactionType newType) {
+        return buffer.toggle(tokenId, publicKey, newType, TokenReactionService::storedReaction);
+    }
+
+    /**
+     * Recomputes every token's counter document from the reactions. Used to
+     * seed the counters the first time they are deployed.
+     */
+    void rebuildCounts() {
+        List<Bson> pipeline = List.of(
+                Aggregates.group("$tokenId", countsByType()),
+                Aggregates.project(Projections.fields(Projections.excludeId(),
+                        Projections.computed("tokenId", "$_id"), Projections.include("likes", "dislikes"))),
+                Aggregates.merge(TokenReactionCount.mongoCollection().getNamespace().getCollectionName(),
+                        new MergeOptions().uniqueIdentifier("tokenId")
+                                .whenMatched(MergeOptions.WhenMatched.REPLACE)));
+        TokenReaction.mongoCollection().aggregate(pipeline).toCollection();
+    }
+
+    /**
+     * Upserts or deletes each reaction of the batch to its final state. Reads
+     * do not count reactions, so this runs alongside them.
+     */
+    void writeReactions(ToggleBuffer.Batch<ReactionType> batch) {
+        List<WriteModel<TokenReaction>> writes = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (ToggleBuffer.Pending<ReactionType> toggle : batch.toggles()) {
+            Bson mine = Filters.and(Filters.eq("tokenId", toggle.tokenId()),
+                    Filters.eq("publicKey", toggle.publicKey()));
+            ReactionType type = toggle.change().after();
+            writes.add(type == null
+                    ? new DeleteOneModel<>(mine)
+                    : new UpdateOneModel<>(mine,
+                            Updates.combine(Updates.set("type", type.name()), Updates.setOnInsert("createdAt", now)),
+                            new UpdateOptions().upsert(true)));
+        }
+        for (List<WriteModel<TokenReaction>> chunk : chunks(writes)) {
+            TokenReaction.<TokenReaction>mongoCollection().bulkWrite(chunk, new BulkWriteOptions().ordered(true));
+        }
+    }
+
+    /**
+     * Applies the batch's net change per token to the counters with
+     * {@code $inc}. Tokens an earlier failed batch may have left off are
+     * recounted from the reactions instead, since that batch could have been
+     * applied in part.
+     */
+    void writeCounts(ToggleBuffer.Batch<ReactionType> batch) {
+        Map<String, Map<ReactionType, Long>> deltas = new LinkedHashMap<>();
+        for (ToggleBuffer.Pending<ReactionType> toggle : batch.toggles()) {
+            if (batch.recount().contains(toggle.tokenId())) {
+                continue;
+            }
+            Map<ReactionType, Long> delta = deltas.computeIfAbsent(toggle.tokenId(),
+                    k -> new EnumMap<>(ReactionType.class));
+            if (toggle.change().before() != null) {
+                delta.merge(toggle.change().before(), -1L, Long::sum);
+            }
+            if (toggle.change().after() != null) {
+                delta.merge(toggle.change().after(), 1L, Long::sum);
+            }
+        }
+        List<WriteModel<TokenReactionCount>> updates = new ArrayList<>();
+        // Wallets that swapped reactions and back leave nothing to apply
+        deltas.values().removeIf(delta -> delta.values().stream().allMatch(n -> n == 0));
+        deltas.forEach((tokenId, delta) -> updates.add(new UpdateOneModel<>(Filters.eq("tokenId", tokenId),
+                Updates.combine(Updates.inc("likes", delta.getOrDefault(ReactionType.LIKE, 0L)),
+                        Updates.inc("dislikes", delta.getOrDefault(ReactionType.DISLIKE, 0L))),
+                new UpdateOptions().upsert(true))));
+        for (List<WriteModel<TokenReactionCount>> chunk : chunks(updates)) {
+            TokenReactionCount.<TokenReactionCount>mongoCollection().bulkWrite(chunk,
+                    new BulkWriteOptions().ordered(false));
+        }
+        deltas.forEach((tokenId, delta) -> {
+            ReactionCounts cached = counts.getIfPresent(tokenId);
+            if (cached != null) {
+                counts.put(tokenId, cached.plus(delta));
+            }
+        });
+        for (List<String> chunk : chunks(new ArrayList<>(batch.recount()))) {
+            recount(chunk);
+        }
+    }
+
+    private void recount(List<String> tokenIds) {
+        Map<String, ReactionCounts> recounted = new HashMap<>();
+        for (Document group : TokenReaction.mongoCollection().aggregate(List.of(
+                Aggregates.match(Filters.in("tokenId", tokenIds)),
+                Aggregates.group("$tokenId", countsByType())), Document.class)) {
+            recounted.put(group.getString("_id"), new ReactionCounts(((Number) group.get("likes")).longValue(),
+                    ((Number) group.get("dislikes")).longValue()));
+        }
+        List<WriteModel<TokenReactionCount>> updates = new ArrayList<>();
+        for (String tokenId : tokenIds) {
+            ReactionCounts total = recounted.getOrDefault(tokenId, ReactionCounts.NONE);
+            updates.add(new UpdateOneModel<>(Filters.eq("tokenId", tokenId),
+                    Updates.combine(Updates.set("likes", total.likes()), Updates.set("dislikes", total.dislikes())),
+                    new UpdateOptions().upsert(true)));
+            recounted.put(tokenId, total);
+        }
+        TokenReactionCount.<TokenReactionCount>mongoCollection().bulkWrite(updates,
+                new BulkWriteOptions().ordered(false));
+        recounted.forEach(counts::put);
+    }
+
+    private static List<BsonField> countsByType() {
+        return List.of(
+                Accumulators.sum("likes", new Document("$cond",
+                        List.of(new Document("$eq", List.of("$type", ReactionType.LIKE.name())), 1, 0))),
+                Accumulators.sum("dislikes", new Document("$cond",
+                        List.of(new Document("$eq", List.of("$type", ReactionType.DISLIKE.name())), 1, 0))));
+    }
+
+    private static <E> List<List<E>> chunks(List<E> items) {
+        List<List<E>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += BATCH_SIZE) {
+            chunks.add(items.subList(i, Math.min(i + BATCH_SIZE, items.size())));
+        }
+        return chunks;
+    }
+
+    private static ReactionType storedReaction(String tokenId, String publicKey) {
         TokenReaction reaction = TokenReaction.find("tokenId = ?1 and publicKey = ?2", tokenId, publicKey)
                 .firstResult();
         return reaction != null ? reaction.getType() : null;
     }
 
-    @Transactional
-    public ReactionType toggleReaction(String tokenId, String publicKey, ReactionType newType) {
-        // Find existing reaction for this user and token
-        TokenReaction existing = TokenReaction.find("tokenId = ?1 and publicKey = ?2", tokenId, publicKey)
-                .firstResult();
+    private static ReactionCounts loadCounts(String tokenId) {
+        TokenReactionCount count = TokenReactionCount.find("tokenId", tokenId).firstResult();
+        return toCounts(count);
+    }
 
-        if (existing != null) {
-            // If clicking the same reaction type, remove it
-            if (existing.getType() == newType) {
-                existing.delete();
-                return null; // No reaction
-            } else {
-                // Change the reaction type
-                existing.setType(newType);
-                existing.persist();
-                return newType;
-            }
-        } else {
-            // Create new reaction
-            TokenReaction reaction = new TokenReaction();
-            reaction.setTokenId(tokenId);
-            reaction.setPublicKey(publicKey);
-            reaction.setType(newType);
-            reaction.persist();
-            return newType;
-        }
+    private static ReactionCounts toCounts(TokenReactionCount count) {
+        return count == null ? ReactionCounts.NONE : new ReactionCounts(count.getLikes(), count.getDislikes());
     }
 }
@@ -1,19 +1,18 @@
 package com.primos.service;
 
+import com.primos.http.OutboundHttpClient;
+import com.primos.http.Upstream;
 import com.primos.model.Transaction;
 import com.primos.resource.TransactionDTO;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
 import java.io.StringReader;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.net.ProxySelector;
-import java.net.InetSocketAddress;
 import java.util.logging.Logger;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -24,25 +23,9 @@ public class TransactionService {
     private static final Logger LOG = Logger.getLogger(TransactionService.class.getName());
     private static final String API_BASE = "https://api-mainnet.magiceden.dev";
     private static final String COLLECTION = System.getenv().getOrDefault("REACT_APP_PRIMOS_COLLECTION", "primos");
-    private static final HttpClient CLIENT = createClient();
-
-    private static HttpClient createClient() {
-        String proxy = System.getenv("https_proxy");
-        if (proxy == null || proxy.isEmpty()) {
-            proxy = System.getenv("HTTPS_PROXY");
-        }
-        if (proxy != null && !proxy.isEmpty()) {
-            try {
-                URI uri = URI.create(proxy);
-                return HttpClient.newBuilder()
-                        .proxy(ProxySelector.of(new InetSocketAddress(uri.getHost(), uri.getPort())))
-                        .build();
-            } catch (Exception ignored) {
-            }
-        }
-        return HttpClient.newHttpClient();
-    }
 
+    @Inject
+    OutboundHttpClient http;
     public Transaction recordTransaction(TransactionDTO dto) {
         LOG.info(() -> "Recording transaction " + dto.txId + " for buyer " + dto.buyer);
         Transaction tx = new Transaction();
@@ -71,8 +54,8 @@ public class TransactionService {
         LOG.info(() -> "Enriching transaction " + tx.getTxId());
         try {
             String url = String.format("%s/v2/collections/%s/activities?offset=0&limit=20", API_BASE, COLLECTION);
-            HttpRequest req = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-            HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
+            HttpRequest req = http.request(Upstream.MAGIC_EDEN, url).build();
+            HttpResponse<String> resp = http.send(Upstream.MAGIC_EDEN, req, HttpResponse.BodyHandlers.ofString());
             if (resp.statusCode() != 200 || resp.body() == null || resp.body().isBlank()) {
                 LOG.info("No enrichment data available");
                 return;
@@ -0,0 +1,253 @@
+package com.primos.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WindowOutputFields;
+import com.primos.http.ContentHash;
+import com.primos.model.TrenchContract;
+import com.primos.model.TrenchContractCaller;
+import com.primos.model.TrenchUser;
+import com.primos.model.User;
+import com.primos.resource.TrenchResource.TrenchCallerInfo;
+import com.primos.resource.TrenchResource.TrenchData;
+import com.primos.resource.TrenchResource.TrenchUserInfo;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Materialized view of the {@code GET /api/trench} payload. The view is loaded
+ * once from a handful of batched reads, then patched in memory by
+ * {@link TrenchService} as callers are added and market caps filled in. After
+ * every change the payload is re-serialized and the bytes swapped atomically,
+ * so serving the trench page needs no database reads. A periodic rebuild
+ * picks up profile changes (pfp, socials) made elsewhere.
+ */
+@ApplicationScoped
+public class TrenchFeed {
+    private static final Logger LOG = Logger.getLogger(TrenchFeed.class.getName());
+    static final int LATEST_CALLERS = 4;
+
+    public record Snapshot(byte[] json, String etag) {
+    }
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private final Map<String, TrenchContract> contracts = new LinkedHashMap<>();
+    private final Map<String, TrenchUserInfo> users = new LinkedHashMap<>();
+    private final Map<String, List<TrenchCallerInfo>> latestCallers = new HashMap<>();
+    private boolean loaded;
+    private volatile Snapshot snapshot;
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(every = "5m", delayed = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    synchronized void rebuild() {
+        load();
+    }
+
+    /**
+     * Records a new caller: the contract and trench user are replaced with their
+     * persisted state and the caller goes to the front of the contract's
+     * latest callers.
+     */
+    public synchronized void callerAdded(TrenchContract contract, TrenchUser trenchUser,
+            TrenchContractCaller caller) {
+        if (!loaded) {
+            return;
+        }
+        User profile = findDisplayUsers(List.of(caller.getCaller())).get(caller.getCaller());
+        contracts.put(contract.getContract(), contract);
+        users.put(trenchUser.getPublicKey(), userInfo(trenchUser, profile));
+        List<TrenchCallerInfo> callers = latestCallers.computeIfAbsent(contract.getContract(),
+                k -> new ArrayList<>());
+        callers.add(0, callerInfo(caller, profile));
+        if (callers.size() > LATEST_CALLERS) {
+            callers.subList(LATEST_CALLERS, callers.size()).clear();
+        }
+        publish();
+    }
+
+    /**
+     * Replaces a contract after its first caller market cap changed.
+     */
+    public synchronized void contractUpdated(TrenchContract contract) {
+        if (!loaded) {
+            return;
+        }
+        contracts.put(contract.getContract(), contract);
+        publish();
+    }
+
+    /**
+     * Sets the market cap of one caller once its background fetch completes.
+     */
+    public synchronized void callerEnriched(String contract, String caller, Long calledAt, Double marketCap) {
+        if (!loaded) {
+            return;
+        }
+        List<TrenchCallerInfo> callers = latestCallers.get(contract);
+        if (callers == null) {
+            return;
+        }
+        boolean changed = false;
+        for (TrenchCallerInfo info : callers) {
+            if (caller.equals(info.caller) && Objects.equals(calledAt, info.calledAt)) {
+                info.marketCapAtCall = marketCap;
+                changed = true;
+            }
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    /**
+     * Fills the market cap of the contract's latest callers that have none,
+     * mirroring a backfill of the stored caller records.
+     */
+    public synchronized void callerMarketCapsFilled(String contract, Double marketCap) {
+        if (!loaded) {
+            return;
+        }
+        List<TrenchCallerInfo> callers = latestCallers.get(contract);
+        if (callers == null) {
+            return;
+        }
+        callers.stream().filter(c -> c.marketCapAtCall == null).forEach(c -> c.marketCapAtCall = marketCap);
+        publish();
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        List<TrenchContract> allContracts = TrenchContract.listAll();
+        List<TrenchUser> trenchUsers = TrenchUser.listAll();
+        Map<String, List<TrenchContractCaller>> latest = getLatestCallersByContract(LATEST_CALLERS);
+
+        // Resolve every referenced wallet with a single query
+        Set<String> wallets = new HashSet<>();
+        trenchUsers.forEach(u -> wallets.add(u.getPublicKey()));
+        latest.values().forEach(callers -> callers.forEach(c -> wallets.add(c.getCaller())));
+        Map<String, User> profiles = findDisplayUsers(wallets);
+
+        contracts.clear();
+        allContracts.forEach(c -> contracts.put(c.getContract(), c));
+        users.clear();
+        trenchUsers.forEach(u -> users.put(u.getPublicKey(), userInfo(u, profiles.get(u.getPublicKey()))));
+        latestCallers.clear();
+        latest.forEach((contract, callers) -> {
+            List<TrenchCallerInfo> infos = new ArrayList<>(callers.size());
+            callers.forEach(c -> infos.add(callerInfo(c, profiles.get(c.getCaller()))));
+            latestCallers.put(contract, infos);
+        });
+        loaded = true;
+        publish();
+        LOG.fine(() -> String.format("Rebuilt trench feed in %d ms", System.currentTimeMillis() - started));
+    }
+
+    private void publish() {
+        TrenchData data = new TrenchData();
+        data.contracts = new ArrayList<>(contracts.values());
+        data.users = new ArrayList<>(users.values());
+        data.latestCallers = new HashMap<>();
+        for (String contract : contracts.keySet()) {
+            data.latestCallers.put(contract, latestCallers.getOrDefault(contract, List.of()));
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(data);
+            snapshot = new Snapshot(json, ContentHash.of(json));
+        } catch (JsonProcessingException e) {
+            LOG.severe("Failed to serialize trench feed: " + e.getMessage());
+        }
+    }
+
+    private static TrenchUserInfo userInfo(TrenchUser u, User user) {
+        TrenchUserInfo info = new TrenchUserInfo();
+        info.publicKey = u.getPublicKey();
+        info.count = u.getCount();
+        info.pfp = user != null ? user.getPfp() : "";
+        info.socials = user != null ? user.getSocials() : new User.SocialLinks();
+        info.contracts = u.getContracts();
+        info.lastSubmittedAt = u.getLastSubmittedAt();
+        return info;
+    }
+
+    private static TrenchCallerInfo callerInfo(TrenchContractCaller caller, User user) {
+        TrenchCallerInfo info = new TrenchCallerInfo();
+        info.caller = caller.getCaller();
+        info.calledAt = caller.getCalledAt();
+        info.marketCapAtCall = caller.getMarketCapAtCall();
+        info.domainAtCall = caller.getDomainAtCall();
+        info.pfp = user != null ? user.getPfp() : "";
+        info.socials = user != null ? user.getSocials() : new User.SocialLinks();
+        return info;
+    }
+
+    /**
+     * Returns the {@code limit} latest callers of every contract, keyed by
+     * contract, using one {@code $setWindowFields} aggregation instead of a
+     * query per contract.
+     */
+    static Map<String, List<TrenchContractCaller>> getLatestCallersByContract(int limit) {
+        List<Bson> pipeline = List.of(
+                Aggregates.setWindowFields("$contract", Sorts.descending("calledAt"),
+                        WindowOutputFields.documentNumber("rank")),
+                Aggregates.match(Filters.lte("rank", limit)),
+                Aggregates.sort(Sorts.orderBy(Sorts.ascending("contract"), Sorts.descending("calledAt"))),
+                new Document("$unset", "rank"));
+        Map<String, List<TrenchContractCaller>> callers = new HashMap<>();
+        for (TrenchContractCaller caller : TrenchContractCaller.<TrenchContractCaller>mongoCollection()
+                .aggregate(pipeline, TrenchContractCaller.class)) {
+            callers.computeIfAbsent(caller.getContract(), k -> new ArrayList<>()).add(caller);
+        }
+        return callers;
+    }
+
+    /**
+     * Loads the users behind the given wallets in one {@code $in} query,
+     * projected to the fields the trench page shows.
+     */
+    static Map<String, User> findDisplayUsers(Collection<String> publicKeys) {
+        Map<String, User> users = new HashMap<>();
+        if (publicKeys.isEmpty()) {
+            return users;
+        }
+        for (User user : User.<User>mongoCollection()
+                .find(Filters.in("publicKey", publicKeys))
+                .projection(Projections.include("publicKey", "pfp", "socials"))) {
+            users.put(user.getPublicKey(), user);
+        }
+        return users;
+    }
+}
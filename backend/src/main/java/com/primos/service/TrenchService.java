@@ -2,9 +2,15 @@ package com.primos.service;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+
 import com.primos.model.TrenchContract;
 import com.primos.model.TrenchContractCaller;
 import com.primos.model.TrenchUser;
@@ -22,6 +28,12 @@ public class TrenchService {
     @Inject
     CoinGeckoService coinGeckoService;
 
+    @Inject
+    TrenchFeed feed;
+
+    @Inject
+    MarketCapEnricher marketCapEnricher;
+
     public void setCoinGeckoService(CoinGeckoService coinGeckoService) {
         this.coinGeckoService = coinGeckoService;
     }
@@ -54,53 +66,23 @@ public class TrenchService {
             tc.setModel(model);
             tc.setFirstCaller(publicKey);
             tc.setFirstCallerAt(now);
-            LOG.log(java.util.logging.Level.INFO, "Fetching market cap for new contract: {0}", contract);
-            Double marketCap = coinGeckoService.fetchMarketCap(contract);
-            if (marketCap != null) {
-                LOG.log(java.util.logging.Level.INFO, "Successfully fetched market cap for new contract {0}: {1}",
-                        new Object[] { contract, marketCap });
-            } else {
-                LOG.log(java.util.logging.Level.WARNING, "Could not fetch market cap for new contract: {0}", contract);
-            }
-            tc.setFirstCallerMarketCap(marketCap);
             tc.setFirstCallerDomain(domain);
             tc.persist();
-
-            // Add the first caller record
-            TrenchContractCaller caller = new TrenchContractCaller();
-            caller.setContract(contract);
-            caller.setCaller(publicKey);
-            caller.setCalledAt(now);
-            caller.setMarketCapAtCall(marketCap);
-            caller.setDomainAtCall(domain);
-            caller.persist();
-            LOG.log(java.util.logging.Level.INFO, "Added first caller record for contract {0} with market cap: {1}",
-                    new Object[] { contract, marketCap });
         } else {
             tc.setCount(tc.getCount() + 1);
             tc.persistOrUpdate();
-
-            // Add caller record for existing contract
-            TrenchContractCaller caller = new TrenchContractCaller();
-            caller.setContract(contract);
-            caller.setCaller(publicKey);
-            caller.setCalledAt(now);
-            LOG.log(java.util.logging.Level.INFO, "Fetching market cap for existing contract: {0}", contract);
-            Double marketCap = coinGeckoService.fetchMarketCap(contract);
-            if (marketCap != null) {
-                LOG.log(java.util.logging.Level.INFO, "Successfully fetched market cap for existing contract {0}: {1}",
-                        new Object[] { contract, marketCap });
-            } else {
-                LOG.log(java.util.logging.Level.WARNING, "Could not fetch market cap for existing contract: {0}",
-                        contract);
-            }
-            caller.setMarketCapAtCall(marketCap);
-            caller.setDomainAtCall(domain);
-            caller.persist();
-            LOG.log(java.util.logging.Level.INFO, "Added caller record for existing contract {0} with market cap: {1}",
-                    new Object[] { contract, marketCap });
         }
 
+        // Persist the caller right away; the market cap is filled in by MarketCapEnricher
+        TrenchContractCaller caller = new TrenchContractCaller();
+        caller.setContract(contract);
+        caller.setCaller(publicKey);
+        caller.setCalledAt(now);
+        caller.setDomainAtCall(domain);
+        caller.setMarketCapPending(true);
+        caller.persist();
+        LOG.log(java.util.logging.Level.INFO, "Added caller record for contract {0}, market cap pending", contract);
+
         if (tu == null) {
             tu = new TrenchUser();
             tu.setPublicKey(publicKey);
@@ -120,6 +102,8 @@ public class TrenchService {
             tu.setLastSubmittedAt(now);
             tu.persistOrUpdate();
         }
+        feed.callerAdded(tc, tu, caller);
+        marketCapEnricher.enqueue(caller);
         User user = User.find("publicKey", publicKey).firstResult();
         if (user != null) {
             user.addBadge("trenches");
@@ -146,6 +130,7 @@ public class TrenchService {
         if (tc != null && tc.getFirstCallerMarketCap() == null && marketCap != null) {
             tc.setFirstCallerMarketCap(marketCap);
             tc.persistOrUpdate();
+            feed.contractUpdated(tc);
             return true;
         }
         return false;
@@ -155,67 +140,83 @@ public class TrenchService {
      * Update missing market cap data for existing caller records
      * 
      * @param contract The contract address
-     * @return Number of records updated
+     * @return Number of records updated, once the market cap lookup is done
      */
-    public int updateMissingMarketCapsForCallers(String contract) {
-        // Get all callers for this contract that don't have market cap data
-        List<TrenchContractCaller> callersWithoutMarketCap = TrenchContractCaller
-                .find("contract = ?1 and marketCapAtCall is null", contract)
-                .list();
-
-        if (callersWithoutMarketCap.isEmpty()) {
-            return 0;
+    public CompletionStage<Integer> updateMissingMarketCapsForCallers(String contract) {
+        // Only fetch a market cap if some caller of this contract is missing one
+        if (TrenchContractCaller.count("contract = ?1 and marketCapAtCall is null", contract) == 0) {
+            return CompletableFuture.completedFuture(0);
         }
 
         // Fetch current market cap
-        Double currentMarketCap = coinGeckoService.fetchMarketCap(contract);
-        if (currentMarketCap == null) {
-            LOG.log(java.util.logging.Level.WARNING, "Could not fetch market cap for contract: {0}", contract);
-            return 0;
-        }
+        return coinGeckoService.fetchMarketCapAsync(contract).thenApplyAsync(currentMarketCap -> {
+            if (currentMarketCap == null) {
+                LOG.log(java.util.logging.Level.WARNING, "Could not fetch market cap for contract: {0}", contract);
+                return 0;
+            }
+            return fillMissingCallerMarketCaps(contract, currentMarketCap);
+        }, TrenchService::onVirtualThread);
+    }
 
-        int updatedCount = 0;
-        for (TrenchContractCaller caller : callersWithoutMarketCap) {
-            caller.setMarketCapAtCall(currentMarketCap);
-            caller.persistOrUpdate();
-            updatedCount++;
-            LOG.log(java.util.logging.Level.INFO, "Updated market cap for caller {0} on contract {1}: {2}",
-                    new Object[] { caller.getCaller(), contract, currentMarketCap });
-        }
+    /**
+     * Runs the blocking writes that follow a market cap lookup off the HTTP
+     * client's threads.
+     */
+    private static void onVirtualThread(Runnable task) {
+        Thread.ofVirtual().name("trench-market-caps").start(task);
+    }
+
+    private int fillMissingCallerMarketCaps(String contract, Double marketCap) {
+        long updatedCount = TrenchContractCaller.mongoCollection().updateMany(
+                Filters.and(Filters.eq("contract", contract), Filters.eq("marketCapAtCall", null)),
+                // Callers still queued for enrichment are settled here; the enricher skips them
+                Updates.combine(Updates.set("marketCapAtCall", marketCap), Updates.set("marketCapPending", false)))
+                .getModifiedCount();
 
         LOG.log(java.util.logging.Level.INFO, "Updated market cap for {0} caller records for contract: {1}",
                 new Object[] { updatedCount, contract });
-        return updatedCount;
+        if (updatedCount > 0) {
+            feed.callerMarketCapsFilled(contract, marketCap);
+        }
+        return (int) updatedCount;
     }
 
     /**
      * Backfill missing market cap data for all contracts and their callers
-     * This method can be called periodically to ensure data consistency
+     * This method can be called periodically to ensure data consistency.
+     * Market caps for all affected contracts are fetched together so the
+     * lookups share a few batched CoinGecko requests.
      */
-    public void backfillMissingMarketCaps() {
+    public CompletionStage<Void> backfillMissingMarketCaps() {
         LOG.log(java.util.logging.Level.INFO, "Starting backfill of missing market cap data");
 
         // Get all contracts that don't have first caller market cap
         List<TrenchContract> contractsWithoutMarketCap = TrenchContract
                 .find("firstCallerMarketCap is null")
                 .list();
+        return coinGeckoService.fetchMarketCapsAsync(
+                contractsWithoutMarketCap.stream().map(TrenchContract::getContract).toList())
+                .thenAcceptAsync(marketCaps -> backfill(contractsWithoutMarketCap, marketCaps),
+                        TrenchService::onVirtualThread);
+    }
+
+    private void backfill(List<TrenchContract> contractsWithoutMarketCap, Map<String, Double> marketCaps) {
 
         int totalUpdatedContracts = 0;
         int totalUpdatedCallers = 0;
 
         for (TrenchContract contract : contractsWithoutMarketCap) {
             String contractAddress = contract.getContract();
-
-            // Fetch market cap for the contract
-            Double marketCap = coinGeckoService.fetchMarketCap(contractAddress);
+            Double marketCap = marketCaps.get(contractAddress);
             if (marketCap != null) {
                 // Update first caller market cap
                 contract.setFirstCallerMarketCap(marketCap);
                 contract.persistOrUpdate();
+                feed.contractUpdated(contract);
                 totalUpdatedContracts++;
 
                 // Update all callers for this contract
-                int updatedCallers = updateMissingMarketCapsForCallers(contractAddress);
+                int updatedCallers = fillMissingCallerMarketCaps(contractAddress, marketCap);
                 totalUpdatedCallers += updatedCallers;
 
                 LOG.log(java.util.logging.Level.INFO,
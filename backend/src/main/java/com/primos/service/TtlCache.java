@@ -0,0 +1,130 @@
+package com.primos.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Small bounded cache with per-entry expiry and single-flight loading.
+ * <p>
+ * Concurrent misses for the same key share one in-flight load. Loaded values
+ * live for {@code ttlMillis}; {@code null} results (failures or "no data") are
+ * cached for the shorter {@code negativeTtlMillis} so a struggling upstream is
+ * not hammered. The least recently used entries are evicted once
+ * {@code maxEntries} is exceeded.
+ */
+public class TtlCache<K, V> {
+    public record Stats(long hits, long misses, long negativeHits, int size) {
+    }
+
+    private record Entry<V>(CompletableFuture<V> value, long expiresAt) {
+    }
+
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+
+    public TtlCache(long ttlMillis, long negativeTtlMillis, int maxEntries) {
+        this(ttlMillis, negativeTtlMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    TtlCache(long ttlMillis, long negativeTtlMillis, int maxEntries, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > TtlCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for {@code key}, or starts {@code loader} if the
+     * key is missing or expired. Callers arriving while a load is in flight get
+     * the same future.
+     */
+    public CompletableFuture<V> get(K key, Function<K, CompletableFuture<V>> loader) {
+        CompletableFuture<V> loading;
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && clock.getAsLong() < entry.expiresAt()) {
+                hits.incrementAndGet();
+                if (entry.value().isDone() && entry.value().getNow(null) == null) {
+                    negativeHits.incrementAndGet();
+                }
+                return entry.value();
+            }
+            misses.incrementAndGet();
+            loading = new CompletableFuture<>();
+            // In flight: never expires until the load completes and sets the real TTL
+            entries.put(key, new Entry<>(loading, Long.MAX_VALUE));
+        }
+        try {
+            loader.apply(key).whenComplete((value, error) -> {
+                long ttl = error == null && value != null ? ttlMillis : negativeTtlMillis;
+                synchronized (entries) {
+                    Entry<V> current = entries.get(key);
+                    if (current != null && current.value() == loading) {
+                        entries.put(key, new Entry<>(loading, clock.getAsLong() + ttl));
+                    }
+                }
+                loading.complete(error == null ? value : null);
+            });
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            loading.complete(null);
+        }
+        return loading;
+    }
+
+    /**
+     * Returns the cached value for {@code key} if it is loaded and unexpired,
+     * without starting a load; {@code null} otherwise.
+     */
+    public V getIfPresent(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null || clock.getAsLong() >= entry.expiresAt() || !entry.value().isDone()) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value().getNow(null);
+        }
+    }
+
+    /**
+     * Replaces the entry for {@code key} with a value known to be current.
+     */
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(CompletableFuture.completedFuture(value),
+                    clock.getAsLong() + (value != null ? ttlMillis : negativeTtlMillis)));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), negativeHits.get(), entries.size());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.primos.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+
+import org.junit.jupiter.api.Test;
+
+public class NoSniSslContextTest {
+    @Test
+    void stripsServerNamesOnlyFromItsOwnEngines() throws Exception {
+        SSLParameters params = new SSLParameters();
+        params.setServerNames(List.of(new SNIHostName("api.meshy.xyz")));
+        params.setEndpointIdentificationAlgorithm("HTTPS");
+
+        SSLEngine engine = NoSniSslContext.wrapDefault().createSSLEngine("api.meshy.xyz", 443);
+        engine.setSSLParameters(params);
+        assertTrue(engine.getSSLParameters().getServerNames().isEmpty());
+        assertEquals("HTTPS", engine.getSSLParameters().getEndpointIdentificationAlgorithm());
+
+        SSLEngine plain = SSLContext.getDefault().createSSLEngine("api.meshy.xyz", 443);
+        params.setServerNames(List.of(new SNIHostName("api.meshy.xyz")));
+        plain.setSSLParameters(params);
+        assertEquals(1, plain.getSSLParameters().getServerNames().size());
+    }
+}
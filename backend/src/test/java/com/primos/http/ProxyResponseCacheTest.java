@@ -0,0 +1,126 @@
+package com.primos.http;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.Test;
+
+public class ProxyResponseCacheTest {
+    private static final String URL = "https://api.example.com/price?ids=a&key=secret&vs=usd";
+
+    @Test
+    void keysOnSortedQueryWithoutSecrets() {
+        assertEquals("https://api.example.com/price?ids=a&vs=usd",
+                ProxyResponseCache.cacheKey("https://api.example.com/price?vs=usd&key=other&ids=a", Set.of("key")));
+        assertEquals("https://api.example.com/price",
+                ProxyResponseCache.cacheKey("https://api.example.com/price?key=x", Set.of("key")));
+    }
+
+    @Test
+    void coalescesMissesAndServesStaleOnUpstreamErrors() {
+        AtomicLong now = new AtomicLong();
+        ProxyResponseCache cache = new ProxyResponseCache(1_000, 5_000, 10, Set.of("key"), now::get);
+        CompletableFuture<HttpResponse<byte[]>> upstream = new CompletableFuture<>();
+        AtomicInteger fetches = new AtomicInteger();
+
+        CompletableFuture<ProxyResponseCache.Cached> first = cache.get(URL, () -> {
+            fetches.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<ProxyResponseCache.Cached> second = cache.get(URL, () -> {
+            fetches.incrementAndGet();
+            return upstream;
+        });
+        upstream.complete(response(200, "{\"a\":1}"));
+
+        assertSame(first, second);
+        assertEquals(1, fetches.get());
+        assertArrayEquals("{\"a\":1}".getBytes(StandardCharsets.UTF_8), first.join().body());
+
+        now.set(2_000);
+        ProxyResponseCache.Cached stale = cache.get(URL, () -> CompletableFuture.completedFuture(response(429, "")))
+                .join();
+        assertEquals(ProxyResponseCache.Source.STALE, stale.source());
+        assertEquals(200, stale.status());
+
+        now.set(10_000);
+        assertEquals(503, cache.get(URL, () -> CompletableFuture.completedFuture(response(503, ""))).join()
+                .status());
+    }
+
+    @Test
+    void revalidatesExpiredEntriesWithUpstreamValidators() {
+        AtomicLong now = new AtomicLong();
+        ProxyResponseCache cache = new ProxyResponseCache(1_000, 0, 10, Set.of(), now::get);
+        ProxyResponseCache.Cached first = cache.get(URL, 1_000,
+                previous -> CompletableFuture.completedFuture(response(200, "{}"))).join();
+
+        now.set(1_500);
+        AtomicReference<ProxyResponseCache.Cached> seen = new AtomicReference<>();
+        ProxyResponseCache.Cached renewed = cache.get(URL, 1_000, previous -> {
+            seen.set(previous);
+            return CompletableFuture.completedFuture(response(304, ""));
+        }).join();
+
+        assertEquals("\"v1\"", seen.get().upstreamEtag());
+        assertEquals(ProxyResponseCache.Source.REVALIDATED, renewed.source());
+        assertEquals(first.etag(), renewed.etag());
+        assertEquals(ProxyResponseCache.Source.HIT, cache.get(URL, 1_000,
+                previous -> CompletableFuture.failedFuture(new AssertionError())).join().source());
+    }
+
+    private static HttpResponse<byte[]> response(int status, String body) {
+        return new HttpResponse<>() {
+            public int statusCode() {
+                return status;
+            }
+
+            public HttpRequest request() {
+                return HttpRequest.newBuilder(URI.create(URL)).build();
+            }
+
+            public Optional<HttpResponse<byte[]>> previousResponse() {
+                return Optional.empty();
+            }
+
+            public HttpHeaders headers() {
+                return HttpHeaders.of(Map.of("Content-Type", List.of("application/json"), "ETag", List.of("\"v1\"")),
+                        (a, b) -> true);
+            }
+
+            public byte[] body() {
+                return body.getBytes(StandardCharsets.UTF_8);
+            }
+
+            public Optional<SSLSession> sslSession() {
+                return Optional.empty();
+            }
+
+            public URI uri() {
+                return URI.create(URL);
+            }
+
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+}
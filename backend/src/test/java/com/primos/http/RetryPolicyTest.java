@@ -0,0 +1,52 @@
+package com.primos.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class RetryPolicyTest {
+    private static final RetryPolicy POLICY = RetryPolicy.of(5, Duration.ofSeconds(1), Duration.ofSeconds(8));
+    private static final HttpRequest GET = HttpRequest.newBuilder(URI.create("https://example.com")).GET().build();
+    private static final HttpRequest POST = HttpRequest.newBuilder(URI.create("https://example.com"))
+            .POST(HttpRequest.BodyPublishers.noBody()).build();
+
+    @Test
+    void backsOffExponentiallyWithJitterUpToTheCap() {
+        assertEquals(500, POLICY.backoffMillis(1, 0));
+        assertEquals(1_000, POLICY.backoffMillis(1, 1));
+        assertEquals(2_000, POLICY.backoffMillis(3, 0));
+        assertEquals(8_000, POLICY.backoffMillis(10, 1));
+        assertEquals(8_000, POLICY.backoffMillis(64, 1));
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndDates() {
+        assertEquals(120_000, RetryPolicy.retryAfterMillis("120", 0));
+        assertEquals(0, RetryPolicy.retryAfterMillis(null, 0));
+        assertEquals(0, RetryPolicy.retryAfterMillis("soon", 0));
+        long now = 784_111_777_000L - 5_000;
+        assertEquals(5_000, RetryPolicy.retryAfterMillis("Sun, 06 Nov 1994 08:49:37 GMT", now));
+    }
+
+    @Test
+    void onlyRetriesNonIdempotentRequestsTheUpstreamDidNotProcess() {
+        assertTrue(POLICY.canRetry(GET, 502));
+        assertFalse(POLICY.canRetry(POST, 502));
+        assertTrue(POLICY.canRetry(POST, 429));
+        assertTrue(POLICY.assumingIdempotent().canRetry(POST, 502));
+        assertFalse(POLICY.canRetry(GET, 404));
+
+        assertTrue(POLICY.canRetry(GET, new IOException("reset")));
+        assertFalse(POLICY.canRetry(POST, new IOException("reset")));
+        assertTrue(POLICY.canRetry(POST, new ConnectException("refused")));
+        assertFalse(POLICY.canRetry(GET, new CircuitOpenException("example.com")));
+    }
+}
@@ -0,0 +1,58 @@
+package com.primos.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstWithoutWaiting() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1, 3, now::get);
+
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    void queuesCallersBehindEarlierReservations() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, 1, now::get);
+
+        assertEquals(0, bucket.reserve(SECOND));
+        assertEquals(SECOND / 2, bucket.reserve(SECOND));
+        assertEquals(SECOND, bucket.reserve(SECOND));
+    }
+
+    @Test
+    void rejectsWhenWaitExceedsLimit() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(SECOND / 2));
+
+        now.addAndGet(SECOND);
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    void tryAcquireFailsFastWhenEmpty() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        now.addAndGet(SECOND);
+        assertTrue(bucket.tryAcquire());
+    }
+}
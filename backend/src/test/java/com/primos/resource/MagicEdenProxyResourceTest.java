@@ -0,0 +1,41 @@
+package com.primos.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class MagicEdenProxyResourceTest {
+    @Test
+    void picksTtlByRoute() {
+        assertEquals(Duration.ofSeconds(30), MagicEdenProxyResource.ttlFor("v2/collections/primos/stats"));
+        assertEquals(Duration.ofSeconds(15), MagicEdenProxyResource.ttlFor("v2/collections/primos/listings"));
+        assertEquals(Duration.ofSeconds(15), MagicEdenProxyResource.ttlFor("v2/tokens/mint1/activities"));
+        assertEquals(Duration.ofHours(1), MagicEdenProxyResource.ttlFor("v2/tokens/mint1"));
+        assertEquals(Duration.ofHours(1), MagicEdenProxyResource.ttlFor("v2/collections/primos"));
+        assertEquals(Duration.ZERO, MagicEdenProxyResource.ttlFor("v2/wallets/abc/tokens"));
+        assertEquals(Duration.ZERO, MagicEdenProxyResource.ttlFor("v3/rtp/solana/tokens"));
+    }
+
+    @Test
+    void matchesIfNoneMatchLists() {
+        assertTrue(ProxyResponses.matches("\"a\", W/\"b\"", "\"b\""));
+        assertTrue(ProxyResponses.matches("*", "\"b\""));
+        assertFalse(ProxyResponses.matches("\"a\"", "\"b\""));
+        assertFalse(ProxyResponses.matches(null, "\"b\""));
+    }
+
+    @Test
+    void honoursGzipQValues() {
+        assertTrue(ProxyResponses.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ProxyResponses.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(ProxyResponses.acceptsGzip("*"));
+        assertFalse(ProxyResponses.acceptsGzip("gzip;q=0"));
+        assertFalse(ProxyResponses.acceptsGzip("gzip; q=0.0, *"));
+        assertFalse(ProxyResponses.acceptsGzip("identity"));
+        assertFalse(ProxyResponses.acceptsGzip(null));
+    }
+}
@@ -0,0 +1,120 @@
+package com.primos.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Checks {@link TxBufferTranscoder} against the tree-based rewrite the
+ * instruction resources used before, which is kept here as the reference.
+ */
+public class TxBufferTranscoderTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void matchesTreeRewriteOnRealisticInstructions() throws Exception {
+        byte[] json = instructions(new Random(7));
+
+        JsonNode streamed = MAPPER.readTree(TxBufferTranscoder.transcode(json));
+
+        assertEquals(treeRewrite(json), streamed);
+        assertEquals(1_232, Base64.getDecoder().decode(streamed.get("v0").get("txSigned").get("data").asText())
+                .length);
+    }
+
+    @Test
+    void leavesOtherShapesAlone() throws Exception {
+        String[] bodies = {
+                "[1,2,3]",
+                "{\"error\":\"not found\"}",
+                "{\"txSigned\":{\"type\":\"Buffer\"},\"other\":{\"txSigned\":{\"data\":[1]}}}",
+                "{\"txSigned\":{\"type\":\"Buffer\",\"data\":[255,\"7\",1.9,null]}}" };
+        for (String body : bodies) {
+            byte[] json = body.getBytes(StandardCharsets.UTF_8);
+            assertEquals(MAPPER.readTree(json).isObject() ? treeRewrite(json) : MAPPER.readTree(json),
+                    MAPPER.readTree(TxBufferTranscoder.transcode(json)), body);
+        }
+    }
+
+    /**
+     * Rough timing of both rewrites; run with {@code RUN_BENCHMARKS=true}.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+    void benchmarkAgainstTreeRewrite() throws Exception {
+        byte[] json = instructions(new Random(7));
+        int iterations = 20_000;
+        for (int round = 0; round < 3; round++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MAPPER.writeValueAsBytes(treeRewrite(json));
+            }
+            long tree = System.nanoTime() - started;
+            started = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                TxBufferTranscoder.transcode(json);
+            }
+            long streaming = System.nanoTime() - started;
+            System.out.printf("%d-byte response: tree %d ns/op, streaming %d ns/op%n", json.length,
+                    tree / iterations, streaming / iterations);
+        }
+    }
+
+    private static JsonNode treeRewrite(byte[] json) throws Exception {
+        ObjectNode node = (ObjectNode) MAPPER.readTree(json);
+        encodeBuffer(node, "txSigned");
+        encodeBuffer(node, "txUnsigned");
+        JsonNode v0 = node.get("v0");
+        if (v0 instanceof ObjectNode obj) {
+            encodeBuffer(obj, "txSigned");
+            encodeBuffer(obj, "txUnsigned");
+        }
+        return node;
+    }
+
+    private static void encodeBuffer(ObjectNode parent, String field) {
+        JsonNode node = parent.get(field);
+        if (node instanceof ObjectNode obj) {
+            JsonNode data = obj.get("data");
+            if (data != null && data.isArray()) {
+                byte[] bytes = new byte[data.size()];
+                for (int i = 0; i < data.size(); i++) {
+                    bytes[i] = (byte) data.get(i).asInt();
+                }
+                obj.put("data", Base64.getEncoder().encodeToString(bytes));
+                obj.remove("type");
+            }
+        }
+    }
+
+    // Shaped like a buy_now response: legacy and v0 transactions at the
+    // 1232-byte packet limit, plus the surrounding metadata
+    private static byte[] instructions(Random random) {
+        StringBuilder json = new StringBuilder("{\"tx\":{\"feePayer\":\"Buyer1111\",\"instructions\":[");
+        for (int i = 0; i < 4; i++) {
+            json.append(i > 0 ? "," : "").append("{\"programId\":\"M2mx93ekt1fmXSVkTrUL9xVFHkmME8HTUi5Cyc5aF7K\"")
+                    .append(",\"keys\":[{\"pubkey\":\"Key").append(i).append("\",\"isSigner\":false}]}");
+        }
+        json.append("]},\"txSigned\":").append(buffer(random, 1_232))
+                .append(",\"v0\":{\"txSigned\":").append(buffer(random, 1_232))
+                .append(",\"txUnsigned\":").append(buffer(random, 1_100)).append("}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String buffer(Random random, int size) {
+        StringBuilder json = new StringBuilder("{\"type\":\"Buffer\",\"data\":[");
+        for (int i = 0; i < size; i++) {
+            json.append(i > 0 ? "," : "").append(random.nextInt(256));
+        }
+        return json.append("]}").toString();
+    }
+}
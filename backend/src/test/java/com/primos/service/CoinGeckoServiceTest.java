@@ -0,0 +1,96 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class CoinGeckoServiceTest {
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+    private final CoinGeckoService service = new CoinGeckoService() {
+        @Override
+        protected CompletableFuture<Map<String, Double>> requestMarketCaps(String platform, List<String> contracts) {
+            requests.add(List.copyOf(contracts));
+            Map<String, Double> marketCaps = new HashMap<>();
+            contracts.forEach(contract -> marketCaps.put(contract, (double) contract.length()));
+            return CompletableFuture.completedFuture(marketCaps);
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void coalescesConcurrentLookupsIntoOneRequest() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<CompletableFuture<Double>>> lookups = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                String contract = "Mint" + (i % 4);
+                lookups.add(pool.submit(() -> {
+                    start.await();
+                    return service.fetchMarketCapAsync(contract);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < threads; i++) {
+                assertEquals(5.0, lookups.get(i).get().join());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, requests.size());
+        assertEquals(List.of("Mint0", "Mint1", "Mint2", "Mint3"), requests.get(0).stream().sorted().toList());
+        // Lookups of the same contract share one future
+        assertSame(lookups.get(0).get(), lookups.get(4).get());
+    }
+
+    @Test
+    void splitsLargeBatchesIntoChunks() {
+        List<String> contracts = new ArrayList<>();
+        for (int i = 0; i < 65; i++) {
+            contracts.add(String.format("Mint%02d", i));
+        }
+
+        Map<String, Double> marketCaps = service.fetchMarketCaps(contracts);
+
+        assertEquals(65, marketCaps.size());
+        assertEquals(List.of(30, 30, 5), requests.stream().map(List::size).toList());
+        assertEquals(contracts, requests.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    void parsesEveryContractOfABatchedResponse() {
+        String body = "{\"0xabc\":{\"usd\":1.2,\"usd_market_cap\":1000.5},"
+                + "\"So1ana\":{\"usd\":3,\"usd_market_cap\":42},"
+                + "\"nocap\":{\"usd\":3}}";
+
+        Map<String, Double> marketCaps = CoinGeckoService.parseMarketCaps(body,
+                List.of("0xABC", "So1ana", "nocap", "missing"));
+
+        assertEquals(Map.of("0xABC", 1000.5, "So1ana", 42.0), marketCaps);
+    }
+
+    @Test
+    void groupsContractsByPlatform() {
+        assertEquals("ethereum", CoinGeckoService.platformOf("0xabc"));
+        assertEquals("solana", CoinGeckoService.platformOf("So1ana"));
+    }
+}
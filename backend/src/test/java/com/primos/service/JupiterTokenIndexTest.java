@@ -0,0 +1,42 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class JupiterTokenIndexTest {
+    private static final String LIST = "["
+            + "{\"address\":\"mintA\",\"chainId\":101,\"symbol\":\"AAA\",\"name\":\"Token A\","
+            + "\"logoURI\":\"https://logo/shared.png\",\"tags\":[\"verified\"],"
+            + "\"extensions\":{\"coingeckoId\":\"token-a\",\"website\":\"https://a\"}},"
+            + "{\"address\":\"mintB\",\"symbol\":\"BBB\",\"name\":\"Token B\","
+            + "\"logoURI\":\"https://logo/shared.png\",\"extensions\":null}"
+            + "]";
+
+    @Test
+    void indexesTokensByMint() throws Exception {
+        Map<String, JupiterTokenIndex.JupiterToken> index = JupiterTokenIndex.parse(
+                new ByteArrayInputStream(LIST.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, index.size());
+        JupiterTokenIndex.JupiterToken a = index.get("mintA");
+        assertEquals("AAA", a.symbol());
+        assertEquals("Token A", a.name());
+        assertEquals("token-a", a.coingeckoId());
+        assertNull(index.get("mintB").coingeckoId());
+    }
+
+    @Test
+    void sharesRepeatedStrings() throws Exception {
+        Map<String, JupiterTokenIndex.JupiterToken> index = JupiterTokenIndex.parse(
+                new ByteArrayInputStream(LIST.getBytes(StandardCharsets.UTF_8)));
+
+        assertSame(index.get("mintA").logoURI(), index.get("mintB").logoURI());
+    }
+}
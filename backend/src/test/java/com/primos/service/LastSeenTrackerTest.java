@@ -0,0 +1,42 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class LastSeenTrackerTest {
+    @Test
+    void coalescesRepeatedTouchesIntoOneWrite() {
+        LastSeenTracker tracker = new LastSeenTracker();
+        tracker.touch("wallet", "2025-01-01");
+        tracker.touch("wallet", "2025-01-01");
+
+        assertEquals(List.of("wallet"), tracker.drain("2025-01-01"));
+
+        tracker.touch("wallet", "2025-01-01");
+        assertTrue(tracker.drain("2025-01-01").isEmpty());
+    }
+
+    @Test
+    void writesAgainOnceTheDayChanges() {
+        LastSeenTracker tracker = new LastSeenTracker();
+        tracker.touch("wallet", "2025-01-01");
+        tracker.drain("2025-01-01");
+
+        tracker.touch("wallet", "2025-01-02");
+        assertEquals(List.of("wallet"), tracker.drain("2025-01-02"));
+    }
+
+    @Test
+    void dropsYesterdaysTouchesFlushedAfterMidnight() {
+        LastSeenTracker tracker = new LastSeenTracker();
+        tracker.touch("late", "2025-01-01");
+        tracker.touch("early", "2025-01-02");
+
+        assertEquals(List.of("early"), tracker.drain("2025-01-02"));
+        assertTrue(tracker.drain("2025-01-02").isEmpty());
+    }
+}
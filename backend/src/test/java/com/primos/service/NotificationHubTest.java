@@ -0,0 +1,256 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import com.primos.model.Notification;
+
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+
+public class NotificationHubTest {
+    private static final String WALLET = "wallet";
+
+    @Test
+    void replaysWhatWasMissedAfterLastEventId() {
+        Notification seen = notification();
+        Notification missed1 = notification();
+        Notification missed2 = notification();
+        AtomicReference<ObjectId> askedAfter = new AtomicReference<>();
+        NotificationHub hub = hub(after -> {
+            askedAfter.set(after);
+            return List.of(missed1, missed2);
+        });
+        FakeSink sink = new FakeSink();
+
+        hub.subscribe(WALLET, sink, new FakeSse(), seen.id.toHexString());
+        Notification live = notification();
+        hub.publish(live);
+
+        assertEquals(seen.id, askedAfter.get());
+        assertEquals(ids(missed1, missed2, live), sink.ids());
+    }
+
+    @Test
+    void liveEventsDuringReplayAreSentOnceAfterIt() {
+        Notification missed1 = notification();
+        Notification missed2 = notification();
+        Notification live = notification();
+        AtomicReference<NotificationHub> holder = new AtomicReference<>();
+        NotificationHub hub = hub(after -> {
+            // Published while the backlog is read; missed2 is in the backlog as well
+            holder.get().publish(missed2);
+            holder.get().publish(live);
+            return List.of(missed1, missed2);
+        });
+        holder.set(hub);
+        FakeSink sink = new FakeSink();
+
+        hub.subscribe(WALLET, sink, new FakeSse(), new ObjectId().toHexString());
+
+        assertEquals(ids(missed1, missed2, live), sink.ids());
+    }
+
+    @Test
+    void dropsStreamsWhoseSendFails() {
+        NotificationHub hub = hub(after -> List.of());
+        FakeSink sink = new FakeSink();
+        hub.subscribe(WALLET, sink, new FakeSse(), null);
+        assertEquals(1, hub.connections());
+
+        sink.failing = true;
+        hub.publish(notification());
+
+        assertEquals(0, hub.connections());
+        assertTrue(sink.isClosed());
+        hub.publish(notification());
+        assertEquals(0, sink.events.size());
+    }
+
+    private static NotificationHub hub(Function<ObjectId, List<Notification>> backlog) {
+        return new NotificationHub() {
+            @Override
+            List<Notification> missedSince(String publicKey, ObjectId lastEventId) {
+                return backlog.apply(lastEventId);
+            }
+        };
+    }
+
+    private static Notification notification() {
+        Notification n = new Notification();
+        n.id = new ObjectId();
+        n.setPublicKey(WALLET);
+        return n;
+    }
+
+    private static List<String> ids(Notification... notifications) {
+        List<String> ids = new ArrayList<>();
+        for (Notification n : notifications) {
+            ids.add(n.id.toHexString());
+        }
+        return ids;
+    }
+
+    private static final class FakeSink implements SseEventSink {
+        final List<OutboundSseEvent> events = new ArrayList<>();
+        boolean failing;
+        boolean closed;
+
+        List<String> ids() {
+            return events.stream().map(OutboundSseEvent::getId).toList();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            if (failing) {
+                return CompletableFuture.failedFuture(new IllegalStateException("gone"));
+            }
+            events.add(event);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class FakeSse implements Sse {
+        @Override
+        public OutboundSseEvent.Builder newEventBuilder() {
+            return new FakeEvent();
+        }
+
+        @Override
+        public SseBroadcaster newBroadcaster() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class FakeEvent implements OutboundSseEvent.Builder, OutboundSseEvent {
+        private String id;
+        private String name;
+        private String comment;
+        private MediaType mediaType;
+        private Object data;
+
+        @Override
+        public OutboundSseEvent.Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder reconnectDelay(long milliseconds) {
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder mediaType(MediaType mediaType) {
+            this.mediaType = mediaType;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder comment(String comment) {
+            this.comment = comment;
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public OutboundSseEvent.Builder data(Class type, Object data) {
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public OutboundSseEvent.Builder data(GenericType type, Object data) {
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder data(Object data) {
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent build() {
+            return this;
+        }
+
+        @Override
+        public Class<?> getType() {
+            return data == null ? null : data.getClass();
+        }
+
+        @Override
+        public Type getGenericType() {
+            return getType();
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        @Override
+        public Object getData() {
+            return data;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getComment() {
+            return comment;
+        }
+
+        @Override
+        public long getReconnectDelay() {
+            return -1;
+        }
+
+        @Override
+        public boolean isReconnectDelaySet() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.primos.model.Notification;
+
+public class NotificationServiceTest {
+    private static final String WALLET = "wallet";
+
+    private final List<Bson> queries = new ArrayList<>();
+    private final Map<ObjectId, Notification> stored = new HashMap<>();
+    private final Map<String, Integer> unread = new HashMap<>();
+    private final NotificationService service = new NotificationService() {
+        @Override
+        List<Notification> find(Bson filter, int size) {
+            queries.add(filter);
+            List<Notification> page = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                page.add(notification(1_000 - queries.size() * 10 - i, false));
+            }
+            return page;
+        }
+
+        @Override
+        Notification flipRead(ObjectId id) {
+            Notification n = stored.get(id);
+            if (n == null || n.isRead()) {
+                return null;
+            }
+            n.setRead(true);
+            return n;
+        }
+
+        @Override
+        Notification remove(ObjectId id) {
+            return stored.remove(id);
+        }
+
+        @Override
+        Notification findById(ObjectId id) {
+            return stored.get(id);
+        }
+
+        @Override
+        void adjustUnread(String publicKey, int delta) {
+            unread.merge(publicKey, delta, Integer::sum);
+        }
+    };
+
+    @Test
+    void firstPageMatchesTheWalletOnly() {
+        assertEquals(new Document("publicKey", WALLET).toBsonDocument(),
+                NotificationService.pageFilter(WALLET, null).toBsonDocument());
+    }
+
+    @Test
+    void laterPagesBreakCreatedAtTiesById() {
+        Notification after = notification(500, false);
+
+        Document expected = new Document("$and", List.of(
+                new Document("publicKey", WALLET),
+                new Document("$or", List.of(
+                        new Document("createdAt", new Document("$lt", 500L)),
+                        new Document("$and", List.of(
+                                new Document("createdAt", 500L),
+                                new Document("_id", new Document("$lt", after.id))))))));
+        assertEquals(expected.toBsonDocument(), NotificationService.pageFilter(WALLET, after).toBsonDocument());
+    }
+
+    @Test
+    void nextPageStartsAfterTheLastItem() {
+        NotificationService.Page first = service.forUser(WALLET, null, 2);
+        Notification last = first.items().get(1);
+        assertEquals(NotificationService.encodeCursor(last), first.nextCursor());
+
+        service.forUser(WALLET, first.nextCursor(), 2);
+
+        assertEquals(NotificationService.pageFilter(WALLET, last).toBsonDocument(),
+                queries.get(1).toBsonDocument());
+    }
+
+    @Test
+    void onlyTheReadThatFlipsDecrementsUnread() {
+        Notification n = store(notification(1, false));
+
+        assertSame(n, service.markRead(n.id));
+        assertSame(n, service.markRead(n.id));
+        assertNull(service.markRead(new ObjectId()));
+
+        assertEquals(Map.of(WALLET, -1), unread);
+    }
+
+    @Test
+    void deletingDecrementsUnreadOnlyForUnreadNotifications() {
+        Notification unreadOne = store(notification(1, false));
+        Notification readOne = store(notification(2, true));
+
+        service.delete(readOne.id);
+        assertEquals(Map.of(), unread);
+
+        service.delete(unreadOne.id);
+        service.delete(unreadOne.id);
+        assertEquals(Map.of(WALLET, -1), unread);
+    }
+
+    /**
+     * Pages through notifications sharing one createdAt on a real MongoDB,
+     * checking the keyset filter neither skips nor repeats any. Manual check:
+     * runs only when {@code MONGODB_TEST_URI} is set.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MONGODB_TEST_URI", matches = ".+")
+    void pagesThroughCreatedAtTiesOnMongo() {
+        try (MongoClient client = MongoClients.create(System.getenv("MONGODB_TEST_URI"))) {
+            MongoCollection<Document> notifications = client.getDatabase("primos-test")
+                    .getCollection("notifications-" + System.nanoTime());
+            try {
+                List<ObjectId> expected = new ArrayList<>();
+                for (int i = 0; i < 7; i++) {
+                    ObjectId id = new ObjectId();
+                    notifications.insertOne(new Document("_id", id).append("publicKey", WALLET)
+                            .append("createdAt", i < 5 ? 100L : 50L));
+                    expected.add(id);
+                }
+                // Newest first: the five at createdAt 100 by descending id, then the two at 50
+                List<ObjectId> newestFirst = new ArrayList<>(expected.subList(0, 5).reversed());
+                newestFirst.addAll(expected.subList(5, 7).reversed());
+
+                List<ObjectId> seen = new ArrayList<>();
+                Notification after = null;
+                do {
+                    List<Document> page = notifications.find(NotificationService.pageFilter(WALLET, after))
+                            .sort(NotificationService.NEWEST_FIRST).limit(2).into(new ArrayList<>());
+                    page.forEach(doc -> seen.add(doc.getObjectId("_id")));
+                    after = null;
+                    if (page.size() == 2) {
+                        after = notification(page.get(1).getLong("createdAt"), false);
+                        after.id = page.get(1).getObjectId("_id");
+                    }
+                } while (after != null);
+
+                assertEquals(newestFirst, seen);
+            } finally {
+                notifications.drop();
+            }
+        }
+    }
+
+    private Notification store(Notification n) {
+        stored.put(n.id, n);
+        return n;
+    }
+
+    private static Notification notification(long createdAt, boolean read) {
+        Notification n = new Notification();
+        n.id = new ObjectId();
+        n.setPublicKey(WALLET);
+        n.setCreatedAt(createdAt);
+        n.setRead(read);
+        return n;
+    }
+    @Test
+    void cursorRoundTripsCreatedAtAndId() {
+        Notification n = new Notification();
+        n.setCreatedAt(1_700_000_000_123L);
+        n.id = new ObjectId();
+
+        Notification decoded = NotificationService.decodeCursor(NotificationService.encodeCursor(n));
+
+        assertEquals(n.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(n.id, decoded.id);
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        for (String cursor : new String[] { "abc", "_" + new ObjectId(), "12_notanid", "x_" + new ObjectId() }) {
+            assertThrows(IllegalArgumentException.class, () -> NotificationService.decodeCursor(cursor), cursor);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.primos.service;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.primos.model.User;
+
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * Manual check, not part of the regular build: hammers one wallet through
+ * {@link PointService#addPoint} from many threads and checks the daily caps
+ * hold. It needs a real MongoDB, so it is skipped unless
+ * {@code MONGODB_TEST_URI} points at one, e.g.
+ * {@code MONGODB_TEST_URI=mongodb://localhost:27017 mvn test -Dtest=PointServiceConcurrencyTest}.
+ * Each run uses, and then drops, its own collection in {@code primos-test}.
+ */
+@EnabledIfEnvironmentVariable(named = "MONGODB_TEST_URI", matches = ".+")
+public class PointServiceConcurrencyTest {
+    private static final String WALLET = "stress-wallet";
+    private static final int THREADS = 32;
+    private static final int CLICKS_PER_THREAD = 50;
+
+    private MongoClient client;
+    private MongoCollection<User> users;
+    private PointService service;
+
+    @BeforeEach
+    void setUp() {
+        client = MongoClients.create(System.getenv("MONGODB_TEST_URI"));
+        users = client.getDatabase("primos-test")
+                .getCollection("primo-" + System.nanoTime(), User.class)
+                .withCodecRegistry(fromRegistries(MongoClientSettings.getDefaultCodecRegistry(),
+                        fromProviders(PojoCodecProvider.builder().automatic(true).build())));
+        service = new PointService() {
+            @Override
+            MongoCollection<User> users() {
+                return users;
+            }
+        };
+        service.stats = new StatsAggregator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        users.drop();
+        client.close();
+    }
+
+    @Test
+    void iconCapHoldsUnderConcurrentClicks() throws Exception {
+        insertUser(0, 0);
+
+        assertEquals(PointService.MAX_ICON_POINTS_PER_DAY, hammer());
+
+        Document stored = stored();
+        assertEquals(PointService.MAX_ICON_POINTS_PER_DAY, stored.getInteger("iconPointsToday"));
+        assertEquals(PointService.MAX_ICON_POINTS_PER_DAY, stored.getInteger("pointsToday"));
+        assertEquals(PointService.MAX_ICON_POINTS_PER_DAY, stored.getInteger("points"));
+    }
+
+    @Test
+    void dailyCapHoldsUnderConcurrentClicks() throws Exception {
+        insertUser(PointService.MAX_POINTS_PER_DAY - 1, 0);
+
+        assertEquals(1, hammer());
+
+        assertEquals(PointService.MAX_POINTS_PER_DAY, stored().getInteger("pointsToday"));
+    }
+
+    private void insertUser(int pointsToday, int iconPointsToday) {
+        users.withDocumentClass(Document.class).insertOne(new Document("publicKey", WALLET)
+                .append("points", pointsToday)
+                .append("pointsToday", pointsToday)
+                .append("iconPointsToday", iconPointsToday));
+    }
+
+    private Document stored() {
+        return users.withDocumentClass(Document.class).find(new Document("publicKey", WALLET)).first();
+    }
+
+    private int hammer() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < CLICKS_PER_THREAD; i++) {
+                        try {
+                            service.addPoint(WALLET, WALLET);
+                            accepted.incrementAndGet();
+                        } catch (BadRequestException e) {
+                            // Cap reached; the click is rejected
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return accepted.get();
+    }
+}
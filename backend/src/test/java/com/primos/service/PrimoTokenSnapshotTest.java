@@ -0,0 +1,50 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.primos.model.PrimoToken;
+
+public class PrimoTokenSnapshotTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static PrimoToken token(String contract, int holders, Double change) {
+        PrimoToken t = new PrimoToken();
+        t.setContract(contract);
+        t.setHolderCount(holders);
+        t.setPriceChange24h(change);
+        return t;
+    }
+
+    @Test
+    void ordersByHolderCountAndByPriceChange() throws Exception {
+        List<PrimoToken> tokens = List.of(
+                token("a", 1, 5.0),
+                token("b", 9, null),
+                token("c", 4, 12.0),
+                token("d", 6, null));
+
+        PrimoTokenSnapshot snapshot = PrimoTokenSnapshot.of(tokens, 0L, MAPPER);
+
+        assertEquals(List.of("b", "d", "c", "a"),
+                snapshot.byHolderCount().stream().map(PrimoToken::getContract).toList());
+        assertEquals(List.of("c", "a", "b"),
+                snapshot.topByPriceChange(3).stream().map(PrimoToken::getContract).toList());
+        assertEquals(4, snapshot.topByPriceChange(50).size());
+    }
+
+    @Test
+    void etagChangesWithContent() throws Exception {
+        PrimoTokenSnapshot first = PrimoTokenSnapshot.of(List.of(token("a", 1, null)), 0L, MAPPER);
+        PrimoTokenSnapshot same = PrimoTokenSnapshot.of(List.of(token("a", 1, null)), 5L, MAPPER);
+        PrimoTokenSnapshot changed = PrimoTokenSnapshot.of(List.of(token("a", 2, null)), 0L, MAPPER);
+
+        assertEquals(first.etag(), same.etag());
+        assertNotEquals(first.etag(), changed.etag());
+    }
+}
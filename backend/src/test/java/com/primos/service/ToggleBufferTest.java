@@ -0,0 +1,151 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class ToggleBufferTest {
+    enum Reaction {
+        LIKE, DISLIKE
+    }
+
+    @Test
+    void collapsesBurstsToTheFinalState() {
+        List<ToggleBuffer.Pending<Reaction>> written = new ArrayList<>();
+        ToggleBuffer<Reaction> buffer = new ToggleBuffer<>("test", 100, batch -> written.addAll(batch.toggles()));
+        AtomicInteger reads = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            buffer.toggle("token", "wallet", Reaction.LIKE, (t, w) -> {
+                reads.incrementAndGet();
+                return null;
+            });
+        }
+        buffer.toggle("token", "other", Reaction.DISLIKE, (t, w) -> Reaction.LIKE);
+        buffer.toggle("token", "undo", Reaction.LIKE, (t, w) -> null);
+        buffer.toggle("token", "undo", Reaction.LIKE, (t, w) -> null);
+
+        assertEquals(1, reads.get());
+        assertEquals(Map.of(Reaction.LIKE, 0L, Reaction.DISLIKE, 1L), buffer.delta("token"));
+        assertEquals(Reaction.LIKE, buffer.latest("token", "wallet").after());
+
+        buffer.flush();
+        assertEquals(2, written.size());
+        assertTrue(buffer.delta("token").isEmpty());
+        assertNull(buffer.latest("token", "wallet"));
+    }
+
+    @Test
+    void failedBatchesAreRetriedWithNewerToggles() {
+        List<ToggleBuffer.Batch<Reaction>> written = new ArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<ToggleBuffer<Reaction>> holder = new AtomicReference<>();
+        ToggleBuffer<Reaction> buffer = new ToggleBuffer<>("test", 100, batch -> {
+            if (attempts.incrementAndGet() == 1) {
+                // Toggled again while the first write is failing
+                holder.get().toggle("token", "wallet", Reaction.DISLIKE, (t, w) -> null);
+                throw new IllegalStateException("down");
+            }
+            written.add(batch);
+        });
+        holder.set(buffer);
+
+        buffer.toggle("token", "wallet", Reaction.LIKE, (t, w) -> null);
+        buffer.flush();
+        assertEquals(Map.of(Reaction.DISLIKE, 1L), buffer.delta("token"));
+
+        buffer.flush();
+        assertEquals(List.of(new ToggleBuffer.Batch<>(List.of(new ToggleBuffer.Pending<>("token", "wallet",
+                new ToggleBuffer.Change<>(null, Reaction.DISLIKE))), Set.of("token"))), written);
+
+        // Once the retry went through, the token is adjusted normally again
+        buffer.toggle("token", "wallet", Reaction.DISLIKE, (t, w) -> Reaction.DISLIKE);
+        buffer.flush();
+        assertEquals(Set.of(), written.get(1).recount());
+    }
+
+    @Test
+    void tokensOfAFailedBatchAreRecountedEvenIfToggledBack() {
+        List<ToggleBuffer.Batch<Reaction>> written = new ArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        ToggleBuffer<Reaction> buffer = new ToggleBuffer<>("test", 100, batch -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("down");
+            }
+            written.add(batch);
+        });
+
+        buffer.toggle("token", "wallet", Reaction.LIKE, (t, w) -> null);
+        buffer.flush();
+        buffer.toggle("token", "wallet", Reaction.LIKE, (t, w) -> null);
+        buffer.flush();
+
+        assertEquals(List.of(new ToggleBuffer.Batch<>(List.of(new ToggleBuffer.Pending<>("token", "wallet",
+                new ToggleBuffer.Change<Reaction>(null, null))), Set.of("token"))), written);
+    }
+
+    @Test
+    void failedBatchesRewriteWalletsThatToggledBack() {
+        Map<String, Reaction> stored = new HashMap<>();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<ToggleBuffer<Reaction>> holder = new AtomicReference<>();
+        ToggleBuffer<Reaction> buffer = new ToggleBuffer<>("test", 100, batch -> {
+            // Ordered writes: each toggle is applied until the batch fails part way
+            for (ToggleBuffer.Pending<Reaction> toggle : batch.toggles()) {
+                if (toggle.change().after() == null) {
+                    stored.remove(toggle.publicKey());
+                } else {
+                    stored.put(toggle.publicKey(), toggle.change().after());
+                }
+            }
+            if (attempts.incrementAndGet() == 1) {
+                holder.get().toggle("token", "wallet", Reaction.LIKE, (t, w) -> null);
+                throw new IllegalStateException("down");
+            }
+        });
+        holder.set(buffer);
+
+        buffer.toggle("token", "wallet", Reaction.LIKE, (t, w) -> null);
+        buffer.flush();
+        assertEquals(Map.of("wallet", Reaction.LIKE), stored);
+        assertNull(buffer.latest("token", "wallet").after());
+
+        buffer.flush();
+        assertEquals(Map.of(), stored);
+        assertNull(buffer.latest("token", "wallet"));
+    }
+
+    @Test
+    void readsRunWhileTheBatchIsStored() {
+        AtomicReference<ToggleBuffer<Reaction>> holder = new AtomicReference<>();
+        List<Integer> readDuringStore = new ArrayList<>();
+        ToggleBuffer<Reaction> buffer = new ToggleBuffer<>("test", 100, batch -> {
+            try {
+                readDuringStore.add(CompletableFuture.supplyAsync(() -> holder.get().read(() -> 1))
+                        .get(5, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, batch -> {
+        });
+        holder.set(buffer);
+
+        buffer.toggle("token", "wallet", Reaction.LIKE, (t, w) -> null);
+        buffer.flush();
+
+        assertEquals(List.of(1), readDuringStore);
+        assertTrue(buffer.delta("token").isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package com.primos.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class TtlCacheTest {
+    @Test
+    void concurrentMissesShareOneLoad() {
+        TtlCache<String, Double> cache = new TtlCache<>(1_000, 100, 10);
+        CompletableFuture<Double> upstream = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<Double> first = cache.get("a", k -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<Double> second = cache.get("a", k -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        upstream.complete(1.0);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, second.join());
+        assertEquals(new TtlCache.Stats(1, 1, 0, 1), cache.stats());
+    }
+
+    @Test
+    void expiresValuesAndCachesFailuresBriefly() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<String, Double> cache = new TtlCache<>(1_000, 100, 10, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("a", k -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }).join());
+        cache.get("a", k -> CompletableFuture.completedFuture(2.0));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().negativeHits());
+
+        now.addAndGet(101);
+        assertEquals(2.0, cache.get("a", k -> CompletableFuture.completedFuture(2.0)).join());
+        now.addAndGet(999);
+        assertEquals(2.0, cache.get("a", k -> CompletableFuture.completedFuture(3.0)).join());
+        now.addAndGet(1);
+        assertEquals(3.0, cache.get("a", k -> CompletableFuture.completedFuture(3.0)).join());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        TtlCache<String, Double> cache = new TtlCache<>(1_000, 100, 2);
+        cache.get("a", k -> CompletableFuture.completedFuture(1.0));
+        cache.get("b", k -> CompletableFuture.completedFuture(2.0));
+        cache.get("a", k -> CompletableFuture.completedFuture(1.0));
+        cache.get("c", k -> CompletableFuture.completedFuture(3.0));
+
+        assertEquals(1.0, cache.get("a", k -> CompletableFuture.completedFuture(9.0)).join());
+        assertEquals(9.0, cache.get("b", k -> CompletableFuture.completedFuture(9.0)).join());
+    }
+
+    @Test
+    void putAndGetIfPresentBypassTheLoader() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<String, Double> cache = new TtlCache<>(1_000, 100, 10, now::get);
+
+        assertNull(cache.getIfPresent("a"));
+        cache.put("a", 1.0);
+        assertEquals(1.0, cache.getIfPresent("a"));
+        assertEquals(1.0, cache.get("a", k -> CompletableFuture.completedFuture(2.0)).join());
+
+        now.addAndGet(1_000);
+        assertNull(cache.getIfPresent("a"));
+    }
+}